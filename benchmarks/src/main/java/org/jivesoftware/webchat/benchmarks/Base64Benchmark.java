@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.jivesoftware.webchat.util.Base64;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decoding of the Base64 encoded workgroup images, which happens for every image request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class Base64Benchmark {
+
+    /**
+     * Size (in bytes) of the decoded image. Workgroup buttons are typically a few kilobytes.
+     */
+    @Param({"1024", "16384"})
+    public int imageSize;
+
+    private String encodedImage;
+
+    @Setup
+    public void setup() {
+        final byte[] image = new byte[imageSize];
+        new Random(imageSize).nextBytes(image);
+        encodedImage = Base64.encodeBytes(image);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64.decode(encodedImage);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the webchat benchmarks with the GC profiler enabled, so that both throughput and allocation rate are
+ * reported. Results are written as JSON, which allows runs of different commits to be compared.
+ * <p>
+ * Usage, after <code>mvn package</code>:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [regexp] [result-file]
+ * </pre>
+ * The optional regular expression selects the benchmarks to run (all of them by default). The result file defaults
+ * to <code>jmh-result.json</code>. The regular JMH command line is still available through
+ * <code>java -cp benchmarks/target/benchmarks.jar org.openjdk.jmh.Main</code>.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        final String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*";
+        final String resultFile = args.length > 1 ? args[1] : "jmh-result.json";
+
+        final Options options = new OptionsBuilder()
+            .include(include)
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(resultFile)
+            .build();
+
+        new Runner(options).run();
+    }
+}
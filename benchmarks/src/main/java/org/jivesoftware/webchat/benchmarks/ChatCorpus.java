@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates the chat text used by the benchmarks. All corpora are derived from a fixed seed, so that every run (and
+ * every commit) processes exactly the same input, which keeps results comparable over time.
+ */
+public enum ChatCorpus {
+
+    /**
+     * Short lines, as typed by visitors and agents during a regular conversation.
+     */
+    SHORT {
+        @Override
+        String line(Random random) {
+            return sentence(random, 3 + random.nextInt(12));
+        }
+    },
+
+    /**
+     * Long pastes, such as stack traces or log fragments that are copied into the chat.
+     */
+    LONG {
+        @Override
+        String line(Random random) {
+            final StringBuilder builder = new StringBuilder();
+            final int lines = 20 + random.nextInt(60);
+            for (int i = 0; i < lines; i++) {
+                builder.append("at org.example.").append(word(random)).append('.').append(word(random))
+                    .append("(<").append(word(random)).append(".java>:").append(random.nextInt(2000)).append(")\n");
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Lines that contain many (markup) links.
+     */
+    URL_HEAVY {
+        @Override
+        String line(Random random) {
+            final StringBuilder builder = new StringBuilder();
+            final int words = 4 + random.nextInt(10);
+            for (int i = 0; i < words; i++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        builder.append("http://www.").append(word(random)).append(".com/").append(word(random));
+                        break;
+                    case 1:
+                        builder.append("https://").append(word(random)).append(".org/?q=").append(word(random));
+                        break;
+                    case 2:
+                        builder.append("[url=http://").append(word(random)).append(".net]").append(word(random)).append("[/url]");
+                        break;
+                    default:
+                        builder.append(word(random));
+                }
+                builder.append(' ');
+            }
+            return builder.toString();
+        }
+    },
+
+    /**
+     * Lines that contain many emoticons and text style markup.
+     */
+    EMOTICON_HEAVY {
+        @Override
+        String line(Random random) {
+            final StringBuilder builder = new StringBuilder();
+            final int words = 4 + random.nextInt(10);
+            for (int i = 0; i < words; i++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        builder.append(EMOTICONS[random.nextInt(EMOTICONS.length)]);
+                        break;
+                    case 1:
+                        builder.append("[b]").append(word(random)).append("[/b]");
+                        break;
+                    default:
+                        builder.append(word(random));
+                }
+                builder.append(' ');
+            }
+            return builder.toString();
+        }
+    };
+
+    /**
+     * The number of distinct lines in each corpus. Benchmarks cycle through these.
+     */
+    public static final int SIZE = 256;
+
+    private static final long SEED = 0x5EEDL;
+
+    private static final String[] EMOTICONS = {
+        ":)", ":-)", ":(", ":D", ":x", "B-)", ":p", ";)", ";-)", ":|", "?:|"
+    };
+
+    private static final String[] WORDS = {
+        "hello", "agent", "please", "order", "invoice", "account", "password", "thanks", "problem", "screen",
+        "browser", "&", "\"quoted\"", "<tag>", "support", "ticket", "refund", "shipping", "error", "again"
+    };
+
+    abstract String line(Random random);
+
+    /**
+     * Returns the lines of this corpus. Repeated invocations return equal content.
+     *
+     * @return the lines of this corpus.
+     */
+    public String[] lines() {
+        final Random random = new Random(SEED + ordinal());
+        final String[] lines = new String[SIZE];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = line(random);
+        }
+        return lines;
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String sentence(Random random, int words) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(word(random));
+        }
+        return builder.toString();
+    }
+}
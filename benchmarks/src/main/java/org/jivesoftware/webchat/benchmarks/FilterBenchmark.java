@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.jivesoftware.webchat.filter.EmoticonFilter;
+import org.jivesoftware.webchat.filter.TextStyleFilter;
+import org.jivesoftware.webchat.filter.URLFilter;
+import org.jivesoftware.webchat.util.StringUtils;
+import org.jivesoftware.webchat.util.WebUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the message filter chain that is applied to every line that is sent from the web client.
+ * <p>
+ * The individual filters are fed with HTML-escaped input, as that is what they receive when they are invoked
+ * through {@link WebUtils#applyFilters(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FilterBenchmark {
+
+    @Param({"SHORT", "LONG", "URL_HEAVY", "EMOTICON_HEAVY"})
+    public ChatCorpus corpus;
+
+    private String[] lines;
+    private String[] escapedLines;
+    private int index;
+
+    @Setup
+    public void setup() {
+        lines = corpus.lines();
+        escapedLines = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            escapedLines[i] = StringUtils.escapeHTMLTags(lines[i]);
+        }
+    }
+
+    private int next() {
+        index = (index + 1) % ChatCorpus.SIZE;
+        return index;
+    }
+
+    @Benchmark
+    public String applyFilters() {
+        return WebUtils.applyFilters(lines[next()]);
+    }
+
+    @Benchmark
+    public String textStyleFilter() {
+        return TextStyleFilter.applyFilter(escapedLines[next()]);
+    }
+
+    @Benchmark
+    public String urlFilter() {
+        return URLFilter.applyFilter(escapedLines[next()]);
+    }
+
+    @Benchmark
+    public String emoticonFilter() {
+        return EmoticonFilter.applyFilter(escapedLines[next()]);
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.jivesoftware.webchat.mail.MailOutbox;
+import org.jivesoftware.webchat.util.RefreshingCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends messages through a {@link MailOutbox} to a stub SMTP server on the local host, and checks that they are
+ * delivered over reused connections, that a message the server turns down for now is retried, and that messages
+ * that cannot be delivered (an unknown recipient, a workgroup without a mail server) are given up on right away.
+ * Exits with status 1 if a check fails.
+ * <p>
+ * The first message is retried after {@link MailOutbox#RETRY_DELAY} milliseconds, so a run takes a few seconds.
+ * <p>
+ * Usage, after <code>mvn package</code>:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.jivesoftware.webchat.benchmarks.MailOutboxCheck [messages]
+ * </pre>
+ */
+public class MailOutboxCheck {
+
+    private static final String WORKGROUP = "support@workgroup.example.org";
+    private static final String UNCONFIGURED_WORKGROUP = "sales@workgroup.example.org";
+    private static final String UNKNOWN_RECIPIENT = "nobody@example.org";
+
+    private static final long TIMEOUT = 30 * 1000;
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        final int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        final SmtpStub stub = new SmtpStub();
+        final Map<String, String> settings = new HashMap<>();
+        settings.put("host", "127.0.0.1");
+        settings.put("port", String.valueOf(stub.getPort()));
+        final MailOutbox outbox = new MailOutbox(new RefreshingCache.Loader<String, Map<String, String>>() {
+            public Map<String, String> load(String workgroup) {
+                return WORKGROUP.equals(workgroup) ? settings : Collections.<String, String>emptyMap();
+            }
+        });
+
+        try {
+            for (int i = 0; i < messageCount; i++) {
+                outbox.send(WORKGROUP, "visitor" + i + "@example.org", "agent@example.org", "Transcript " + i, "Hello.", false);
+            }
+            await(outbox, messageCount, 0);
+            check("messages delivered", stub.messages.get(), messageCount);
+            check("messages retried", outbox.getRetryCount(), 1);
+            check("connections opened", outbox.getConnectionCount(), stub.connections.get());
+            checkAtMost("connections opened", outbox.getConnectionCount(), MailOutbox.THREAD_COUNT + 1);
+
+            outbox.send(WORKGROUP, UNKNOWN_RECIPIENT, "agent@example.org", "Transcript", "Hello.", false);
+            outbox.send(UNCONFIGURED_WORKGROUP, "visitor@example.org", "agent@example.org", "Transcript", "Hello.", false);
+            await(outbox, messageCount, 2);
+            check("messages retried", outbox.getRetryCount(), 1);
+            check("messages queued", outbox.getQueueSize(), 0);
+        }
+        finally {
+            outbox.close();
+            stub.close();
+        }
+
+        System.out.println(failures == 0 ? "All checks passed." : failures + " check(s) failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Waits until the outbox has sent and given up on the expected number of messages.
+     */
+    private static void await(MailOutbox outbox, long sent, long failed) throws InterruptedException {
+        final long end = System.currentTimeMillis() + TIMEOUT;
+        while ((outbox.getSentCount() < sent || outbox.getFailureCount() < failed) && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+        check("messages sent", outbox.getSentCount(), sent);
+        check("messages failed", outbox.getFailureCount(), failed);
+    }
+
+    private static void check(String name, long actual, long expected) {
+        report(name, actual, actual == expected, "" + expected);
+    }
+
+    private static void checkAtMost(String name, long actual, long maximum) {
+        report(name, actual, actual <= maximum, "at most " + maximum);
+    }
+
+    private static void report(String name, long actual, boolean passed, String expected) {
+        if (!passed) {
+            failures++;
+        }
+        System.out.printf("%-4s %-20s %6d (expected %s)%n", passed ? "OK" : "FAIL", name, actual, expected);
+    }
+
+    /**
+     * An SMTP server that accepts any message, except that it turns down the first one for now, and that it does not
+     * know {@link #UNKNOWN_RECIPIENT}.
+     */
+    private static final class SmtpStub implements Runnable {
+        private final ServerSocket serverSocket;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger messages = new AtomicInteger();
+        private final AtomicInteger refusals = new AtomicInteger(1);
+
+        private SmtpStub() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            final Thread thread = new Thread(this, "SMTP stub");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                }
+                catch (IOException e) {
+                    return;
+                }
+                connections.incrementAndGet();
+                final Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            handle(socket);
+                        }
+                        catch (IOException e) {
+                            // The client went away.
+                        }
+                    }
+                }, "SMTP stub connection");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            try (Socket s = socket) {
+                final BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+                final Writer out = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII);
+                reply(out, "220 localhost SMTP stub");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    final String command = line.toUpperCase();
+                    if (command.startsWith("RCPT") && line.contains(UNKNOWN_RECIPIENT)) {
+                        reply(out, "550 No such user");
+                    }
+                    else if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // The content of the message is not checked.
+                        }
+                        if (refusals.getAndDecrement() > 0) {
+                            reply(out, "451 Try again later");
+                        }
+                        else {
+                            messages.incrementAndGet();
+                            reply(out, "250 OK");
+                        }
+                    }
+                    else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    else {
+                        reply(out, "250 OK");
+                    }
+                }
+            }
+        }
+
+        private static void reply(Writer out, String reply) throws IOException {
+            out.write(reply);
+            out.write("\r\n");
+            out.flush();
+        }
+
+        private void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
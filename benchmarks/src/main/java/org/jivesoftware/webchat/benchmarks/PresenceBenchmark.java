@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of processing a single presence stanza by the listener on the global connection, for the
+ * kinds of presence that it receives:
+ * <ul>
+ *     <li>presences of agents and other roster contacts, which carry no workgroup extension;</li>
+ *     <li>presences of workgroups that repeat the modification date that was seen before;</li>
+ *     <li>presences of workgroups with a different modification date, which has to be parsed.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PresenceBenchmark {
+
+    private Presence agentPresence;
+    private Presence unchangedPresence;
+    private Presence[] alternatingPresences;
+    private int index;
+
+    @Setup
+    public void setup() throws Exception {
+        agentPresence = new Presence(Presence.Type.available);
+        agentPresence.setFrom(JidCreate.from("agent@example.org/spark"));
+
+        unchangedPresence = workgroupPresence("unchanged", "20260101T10:00:00");
+
+        // Going back and forth between two dates means that the date is parsed every time, while listeners
+        // are never notified (the older date is ignored).
+        alternatingPresences = new Presence[] {
+            workgroupPresence("alternating", "20260101T10:00:00"),
+            workgroupPresence("alternating", "20250101T10:00:00")
+        };
+
+        WorkgroupStatus.processWorkgroupPresence(unchangedPresence);
+        WorkgroupStatus.processWorkgroupPresence(alternatingPresences[0]);
+    }
+
+    private static Presence workgroupPresence(String name, String lastModified) throws Exception {
+        final Presence presence = new Presence(Presence.Type.available);
+        presence.setFrom(JidCreate.from(name + "@workgroup.example.org"));
+        presence.addExtension(StandardExtensionElement.builder("workgroup", "http://jivesoftware.com/protocol/workgroup")
+            .addAttribute("lastModified", lastModified)
+            .build());
+        return presence;
+    }
+
+    @Benchmark
+    public void agentPresence() {
+        WorkgroupStatus.processWorkgroupPresence(agentPresence);
+    }
+
+    @Benchmark
+    public void unchangedWorkgroupPresence() {
+        WorkgroupStatus.processWorkgroupPresence(unchangedPresence);
+    }
+
+    @Benchmark
+    public void changedWorkgroupPresence() {
+        index ^= 1;
+        WorkgroupStatus.processWorkgroupPresence(alternatingPresences[index]);
+    }
+}
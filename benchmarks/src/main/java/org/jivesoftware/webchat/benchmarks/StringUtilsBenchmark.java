@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.jivesoftware.webchat.util.StringUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the string utilities that sit on the request path: HTML escaping of chat text and form values, and
+ * string replacement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StringUtilsBenchmark {
+
+    @Param({"SHORT", "LONG", "URL_HEAVY", "EMOTICON_HEAVY"})
+    public ChatCorpus corpus;
+
+    private String[] lines;
+    private int index;
+
+    @Setup
+    public void setup() {
+        lines = corpus.lines();
+    }
+
+    private int next() {
+        index = (index + 1) % ChatCorpus.SIZE;
+        return index;
+    }
+
+    @Benchmark
+    public String escapeHTMLTags() {
+        return StringUtils.escapeHTMLTags(lines[next()]);
+    }
+
+    @Benchmark
+    public String replace() {
+        return StringUtils.replace(lines[next()], "<", "&lt;");
+    }
+}
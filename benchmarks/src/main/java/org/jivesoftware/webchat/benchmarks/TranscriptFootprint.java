@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.jivesoftware.webchat.history.Line;
+import org.jivesoftware.webchat.history.Transcript;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the heap retained per transcript line, as measured by JOL, for every corpus: once for the lines kept as
+ * a list of {@link Line} objects (as transcripts used to), and once for a {@link Transcript}.
+ * <p>
+ * Usage, after <code>mvn package</code>:
+ * <pre>
+ * java -Djdk.attach.allowAttachSelf -cp benchmarks/target/benchmarks.jar org.jivesoftware.webchat.benchmarks.TranscriptFootprint [lines]
+ * </pre>
+ * Note that the difference depends on the JVM: with compact strings (Java 9 and later), lines that are kept as
+ * objects take up less room than on Java 8.
+ */
+public class TranscriptFootprint {
+
+    private static final String[] SPEAKERS = {"Visitor", "Agent Smith"};
+
+    public static void main(String[] args) {
+        final int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        System.out.printf("%-16s %14s %14s %8s%n", "Corpus", "Lines (B/line)", "Transcript", "Ratio");
+        for (ChatCorpus corpus : ChatCorpus.values()) {
+            final String[] text = corpus.lines();
+            final List<Line> lines = new ArrayList<>();
+            final Transcript transcript = new Transcript();
+            final long start = System.currentTimeMillis();
+            for (int i = 0; i < lineCount; i++) {
+                // Every message arrives as new strings, so the corpus strings must not be shared.
+                final Line line = new Line(new String(SPEAKERS[i % SPEAKERS.length]), new String(text[i % text.length]), start + i * 1000L);
+                lines.add(line);
+                transcript.addLine(line);
+            }
+
+            final double linesSize = (double) GraphLayout.parseInstance(lines).totalSize() / lineCount;
+            final double transcriptSize = (double) GraphLayout.parseInstance(transcript).totalSize() / lineCount;
+            System.out.printf("%-16s %14.1f %14.1f %7.2fx%n", corpus, linesSize, transcriptSize, linesSize / transcriptSize);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.benchmarks;
+
+import org.jivesoftware.webchat.history.Line;
+import org.jivesoftware.webchat.history.Transcript;
+import org.jivesoftware.webchat.history.TranscriptRenderer;
+import org.jivesoftware.webchat.util.ModelUtil;
+import org.jivesoftware.webchat.util.WebUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a transcript of 10,000 lines to a response, the way <code>transcriptsrc.jsp</code> used to (by
+ * building the strings of every line, and rewriting image addresses with a regular expression), and with a
+ * {@link TranscriptRenderer}.
+ * <p>
+ * The response is modelled as a writer with the default buffer of a JSP page (8 KB) in front of a sink. The
+ * <tt>FirstByte</tt> benchmarks measure the time until the first bytes reach the sink, the <tt>Complete</tt> ones
+ * the time it takes to write the whole transcript.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TranscriptRenderBenchmark {
+
+    private static final String BASE_URL = "http://localhost:8080/webchat";
+
+    private static final String[] SPEAKERS = {"Visitor", "Agent Smith", ""};
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Param({"SHORT", "LONG", "URL_HEAVY", "EMOTICON_HEAVY"})
+    public ChatCorpus corpus;
+
+    @Param({"10000"})
+    public int lineCount;
+
+    private Transcript transcript;
+
+    private final TranscriptRenderer renderer = new TranscriptRenderer(BASE_URL);
+
+    @Setup
+    public void setup() {
+        final String[] text = corpus.lines();
+        transcript = new Transcript();
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < lineCount; i++) {
+            transcript.addLine(new Line(SPEAKERS[i % SPEAKERS.length], WebUtils.applyFilters(text[i % text.length]), start + i * 1000L));
+        }
+    }
+
+    @Benchmark
+    public boolean legacyFirstByte() throws IOException {
+        final Writer out = new BufferedWriter(new FirstByteSink(), BUFFER_SIZE);
+        try {
+            writeLegacy(out);
+            out.flush();
+            return false;
+        }
+        catch (FirstByte e) {
+            return true;
+        }
+    }
+
+    @Benchmark
+    public boolean rendererFirstByte() throws IOException {
+        final Writer out = new BufferedWriter(new FirstByteSink(), BUFFER_SIZE);
+        try {
+            renderer.writeHTML(transcript, out);
+            return false;
+        }
+        catch (FirstByte e) {
+            return true;
+        }
+    }
+
+    @Benchmark
+    public long legacyComplete() throws IOException {
+        final CountingSink sink = new CountingSink();
+        final Writer out = new BufferedWriter(sink, BUFFER_SIZE);
+        writeLegacy(out);
+        out.flush();
+        return sink.count;
+    }
+
+    @Benchmark
+    public long rendererComplete() throws IOException {
+        final CountingSink sink = new CountingSink();
+        final Writer out = new BufferedWriter(sink, BUFFER_SIZE);
+        renderer.writeHTML(transcript, out);
+        return sink.count;
+    }
+
+    /**
+     * Writes the transcript the way <code>transcriptsrc.jsp</code> did before it used the renderer.
+     */
+    private void writeLegacy(Writer out) throws IOException {
+        final List<Line> lines = transcript.getTranscript();
+        for (int i = 0; i < lines.size(); i++) {
+            final Line line = lines.get(i);
+            final String from = line.getFrom() != null ? line.getFrom() : "";
+            final String text = line.getText().replaceAll("src=\"", "src=\"" + BASE_URL + "/");
+            out.write("\n\n                            <div class=\"chat-line\">\n");
+            if (!ModelUtil.hasLength(from)) {
+                out.write("\n\n                                    <span class=\"chat-announcement\"> " + text + " </span>\n\n");
+            }
+            else {
+                out.write("\n\n                                    <span class=\"client-name\"> " + from + ": </span>\n"
+                    + "                                    <span class=\"text\"> " + text + " </span>\n\n");
+            }
+            out.write("                            </div>\n\n");
+        }
+    }
+
+    /**
+     * Thrown by {@link FirstByteSink} to stop writing once the first bytes have been sent.
+     */
+    private static final class FirstByte extends IOException {
+        private FirstByte() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final FirstByte FIRST_BYTE = new FirstByte();
+
+    private static final class FirstByteSink extends Writer {
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            throw FIRST_BYTE;
+        }
+
+        public void flush() throws IOException {
+        }
+
+        public void close() throws IOException {
+        }
+    }
+
+    private static final class CountingSink extends Writer {
+        private long count;
+
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Precompresses the static assets of the web application when it is built. For every script and style sheet, a
+ * gzip encoded variant is written (if that is smaller than the asset itself), and the content hash of the asset is
+ * recorded in a manifest (see {@link StaticAssets#MANIFEST}). Both are picked up by the
+ * {@link org.jivesoftware.webchat.servlets.StaticAssetServlet}.
+ * <p>
+ * The Java platform has no brotli encoder, so no brotli encoded variants are written. Brotli encoded variants that
+ * are created by other means (as <tt>.br</tt> files next to the assets) are served all the same.
+ * <p>
+ * This is a build tool, which is not packaged in the web application (see the <tt>src/build/java</tt> source set in
+ * the POM of the module).
+ * <p>
+ * Usage: <tt>StaticAssetCompressor &lt;webapp directory&gt; &lt;output directory&gt;</tt>
+ */
+public final class StaticAssetCompressor {
+
+    private StaticAssetCompressor() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: StaticAssetCompressor <webapp directory> <output directory>");
+            System.exit(1);
+        }
+
+        final Path source = Paths.get(args[0]);
+        final Path target = Paths.get(args[1]);
+        final Map<String, String> manifest = new TreeMap<>();
+
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                final String name = file.getFileName().toString();
+                if (!name.endsWith(".js") && !name.endsWith(".css")) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                final Path relativePath = source.relativize(file);
+                final byte[] content = Files.readAllBytes(file);
+                manifest.put("/" + relativePath.toString().replace('\\', '/'), StaticAsset.hash(ByteBuffer.wrap(content)));
+
+                final byte[] compressed = gzip(content);
+                if (compressed.length < content.length) {
+                    final Path compressedFile = target.resolve(relativePath.toString() + ".gz");
+                    Files.createDirectories(compressedFile.getParent());
+                    Files.write(compressedFile, compressed);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        final Path manifestFile = target.resolve(StaticAssets.MANIFEST.substring(1));
+        Files.createDirectories(manifestFile.getParent());
+        try (Writer writer = Files.newBufferedWriter(manifestFile, StandardCharsets.ISO_8859_1)) {
+            // Written by hand rather than through Properties, to keep the build reproducible (no timestamp).
+            for (Map.Entry<String, String> entry : manifest.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        }
+        System.out.println("Precompressed " + manifest.size() + " static assets into " + target);
+    }
+
+    /**
+     * Compresses content using the best (slowest) gzip compression, which only has to be done once.
+     */
+    private static byte[] gzip(byte[] content) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length);
+        try (OutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -1,12 +1,17 @@
 package org.jivesoftware.smackx.workgroup.user;
 
+import org.jivesoftware.smack.ExceptionCallback;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.StanzaListener;
 import org.jivesoftware.smack.XMPPConnection;
-import org.jivesoftware.smack.XMPPException.XMPPErrorException;
 import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smackx.workgroup.ext.email.EmailIQ;
 import org.jxmpp.jid.Jid;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 
 public class WorkgroupExt extends Workgroup {
 
@@ -20,32 +25,118 @@ public class WorkgroupExt extends Workgroup {
         super(workgroupJID, connection);
         this.connection = connection;
     }
-    
-    public boolean sendMail(String paramString1, String paramString2, String paramString3, String paramString4, boolean paramBoolean) throws XMPPErrorException, NotConnectedException, InterruptedException {
-        EmailIQ localEmailIQ = new EmailIQ();
-        localEmailIQ.setToAddress(paramString1);
-        localEmailIQ.setFromAddress(paramString2);
-        localEmailIQ.setSubject(paramString3);
-        localEmailIQ.setMessage(paramString4);
-        localEmailIQ.setHtml(paramBoolean);
-        localEmailIQ.setType(IQ.Type.set);
-        localEmailIQ.setTo(getWorkgroupJID());
-        
-        this.connection.createStanzaCollectorAndSend(localEmailIQ);
-        
-        return true;
+
+    /**
+     * Asks the workgroup to send an email.
+     *
+     * @param toAddress   the address to send the email to.
+     * @param fromAddress the address the email is from.
+     * @param subject     the subject of the email.
+     * @param message     the body of the email.
+     * @param html        true if the body is HTML.
+     * @return true if the workgroup accepted the email, false if it returned an error or did not answer in time.
+     * @throws NotConnectedException if the request could not be sent.
+     * @throws InterruptedException  if interrupted while waiting for the answer.
+     */
+    public boolean sendMail(String toAddress, String fromAddress, String subject, String message, boolean html) throws NotConnectedException, InterruptedException {
+        return await(sendMailAsync(toAddress, fromAddress, subject, message, html));
+    }
+
+    /**
+     * Asks the workgroup to send the transcript of a chat session by email.
+     *
+     * @param toAddress the address to send the transcript to.
+     * @param sessionID the ID of the chat session.
+     * @return true if the workgroup accepted the request, false if it returned an error or did not answer in time.
+     * @throws NotConnectedException if the request could not be sent.
+     * @throws InterruptedException  if interrupted while waiting for the answer.
+     */
+    public boolean sendTranscript(String toAddress, String sessionID) throws NotConnectedException, InterruptedException {
+        return await(sendTranscriptAsync(toAddress, sessionID));
     }
-    
-    public boolean sendTranscript(String paramString1, String paramString2) throws XMPPErrorException, NotConnectedException, InterruptedException {
-        EmailIQ localEmailIQ = new EmailIQ();
-        localEmailIQ.setToAddress(paramString1);
-        localEmailIQ.setSessionID(paramString2);
-        localEmailIQ.setType(IQ.Type.set);
-        localEmailIQ.setTo(getWorkgroupJID());
-        
-        this.connection.createStanzaCollectorAndSend(localEmailIQ);
-        
-        return true;
+
+    /**
+     * Asks the workgroup to send an email, without waiting for the answer.
+     *
+     * @param toAddress   the address to send the email to.
+     * @param fromAddress the address the email is from.
+     * @param subject     the subject of the email.
+     * @param message     the body of the email.
+     * @param html        true if the body is HTML.
+     * @return the answer of the workgroup, which completes exceptionally with an
+     *         {@link org.jivesoftware.smack.XMPPException.XMPPErrorException} if the workgroup returned an error, or
+     *         a {@link org.jivesoftware.smack.SmackException.NoResponseException} if it did not answer within the
+     *         reply timeout of the connection.
+     */
+    public CompletableFuture<IQ> sendMailAsync(String toAddress, String fromAddress, String subject, String message, boolean html) {
+        EmailIQ emailIQ = new EmailIQ();
+        emailIQ.setToAddress(toAddress);
+        emailIQ.setFromAddress(fromAddress);
+        emailIQ.setSubject(subject);
+        emailIQ.setMessage(message);
+        emailIQ.setHtml(html);
+        return sendAsync(emailIQ);
     }
-    
+
+    /**
+     * Asks the workgroup to send the transcript of a chat session by email, without waiting for the answer.
+     *
+     * @param toAddress the address to send the transcript to.
+     * @param sessionID the ID of the chat session.
+     * @return the answer of the workgroup, which completes exceptionally like the one of
+     *         {@link #sendMailAsync(String, String, String, String, boolean)}.
+     */
+    public CompletableFuture<IQ> sendTranscriptAsync(String toAddress, String sessionID) {
+        EmailIQ emailIQ = new EmailIQ();
+        emailIQ.setToAddress(toAddress);
+        emailIQ.setSessionID(sessionID);
+        return sendAsync(emailIQ);
+    }
+
+    /**
+     * Sends a request to the workgroup. The listener that waits for the answer is removed once the answer has
+     * arrived, or once the reply timeout of the connection has passed.
+     */
+    private CompletableFuture<IQ> sendAsync(IQ request) {
+        request.setType(IQ.Type.set);
+        request.setTo(getWorkgroupJID());
+
+        final CompletableFuture<IQ> answer = new CompletableFuture<>();
+        try {
+            this.connection.sendIqWithResponseCallback(request, new StanzaListener() {
+                public void processStanza(Stanza stanza) {
+                    answer.complete((IQ) stanza);
+                }
+            }, new ExceptionCallback() {
+                public void processException(Exception exception) {
+                    answer.completeExceptionally(exception);
+                }
+            }, this.connection.getReplyTimeout());
+        }
+        catch (NotConnectedException e) {
+            answer.completeExceptionally(e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            answer.completeExceptionally(e);
+        }
+        return answer;
+    }
+
+    private static boolean await(CompletableFuture<IQ> answer) throws NotConnectedException, InterruptedException {
+        try {
+            answer.get();
+            return true;
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof NotConnectedException) {
+                throw (NotConnectedException) e.getCause();
+            }
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            }
+            return false;
+        }
+    }
+
 }
@@ -13,6 +13,8 @@
 package org.jivesoftware.webchat;
 
 import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.metrics.IqLatencyRecorder;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
 import org.jivesoftware.webchat.settings.ChatSettingsManager;
 import org.jivesoftware.webchat.settings.ConnectionSettings;
 import org.jivesoftware.webchat.util.WebLog;
@@ -34,6 +36,8 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.servlet.ServletContext;
 
@@ -47,6 +51,7 @@ public final class ChatManager {
     private Map<String, ChatSession> sessions;
     private XMPPTCPConnection globalConnection;
     private ChatSettingsManager chatSettingsManager;
+    private SessionLimits sessionLimits = new SessionLimits();
 
     /**
      * Chats that are closed but not removed are to be removed after this period.
@@ -69,7 +74,13 @@ public final class ChatManager {
     private static final long INACTIVE_TIME_WARNING_IN_MS = 10 * 1000;
 
     private static final ChatManager singleton = new ChatManager();
-    
+
+    private final LongAdder routedCount = new LongAdder();
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder sweepCount = new LongAdder();
+    private volatile long lastSweepDuration;
+    private volatile long maxSweepDuration;
+
 
     /**
      * Returns the singleton instance of <CODE>ChatManager</CODE>,
@@ -106,6 +117,7 @@ public final class ChatManager {
     }
 
     private void removeStaleChats() {
+        final long start = System.nanoTime();
         final Iterator<ChatSession> chatSessions = new ArrayList<ChatSession>(getChatSessions()).iterator();
         final long now = System.currentTimeMillis();
         while (chatSessions.hasNext()) {
@@ -115,6 +127,7 @@ public final class ChatManager {
             if (chatSession.isClosed()) {
                 if (lastCheck < now - MAXIMUM_STALE_SESSION_LENGTH_IN_MS) {
                     removeChatSession(chatSession.getSessionID());
+                    expiredCount.increment();
                 }
             } else {
                 if (lastCheck != 0) {
@@ -127,6 +140,7 @@ public final class ChatManager {
 
                         // Remove from cache
                         removeChatSession(chatSession.getSessionID());
+                        expiredCount.increment();
                     }
                     // Warn the users that the browser client appears to be unresponsive
                     else if (!chatSession.isInactivityWarningSent() && now - lastCheck > INACTIVE_TIME_WARNING_IN_MS) {
@@ -157,10 +171,93 @@ public final class ChatManager {
 
                         // Remove from cache
                         removeChatSession(chatSession.getSessionID());
+                        expiredCount.increment();
                     }
                 }
             }
         }
+
+        final long duration = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        lastSweepDuration = duration;
+        if (duration > maxSweepDuration) {
+            maxSweepDuration = duration;
+        }
+        sweepCount.increment();
+    }
+
+    /**
+     * Closes and removes the sessions of which the browser has not polled for new messages (or that have not been
+     * routed, if it never did) in the given number of milliseconds. Sessions that were closed already are removed
+     * as well.
+     *
+     * @param maxIdleTime the number of milliseconds after which a session is idle.
+     * @return the number of sessions that were removed.
+     */
+    public int closeIdleSessions(long maxIdleTime) {
+        final long now = System.currentTimeMillis();
+        int count = 0;
+        for (ChatSession chatSession : new ArrayList<ChatSession>(getChatSessions())) {
+            final long lastActivity = chatSession.getLastCheck() != 0 ? chatSession.getLastCheck() : chatSession.getCreatedTimestamp();
+            if (now - lastActivity > maxIdleTime) {
+                chatSession.close();
+                if (removeChatSession(chatSession.getSessionID()) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Records that a session has been routed to an agent.
+     */
+    void sessionRouted() {
+        routedCount.increment();
+    }
+
+    /**
+     * Returns the number of sessions that have been routed to an agent.
+     *
+     * @return the number of routed sessions.
+     */
+    public long getRoutedCount() {
+        return routedCount.sum();
+    }
+
+    /**
+     * Returns the number of sessions that have been removed because they were inactive, or closed for too long.
+     *
+     * @return the number of expired sessions.
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * Returns the number of times the sessions have been checked for inactivity.
+     *
+     * @return the number of sweeps.
+     */
+    public long getSweepCount() {
+        return sweepCount.sum();
+    }
+
+    /**
+     * Returns the number of microseconds the last check of the sessions for inactivity took.
+     *
+     * @return the duration of the last sweep, in microseconds.
+     */
+    public long getLastSweepDuration() {
+        return lastSweepDuration;
+    }
+
+    /**
+     * Returns the largest number of microseconds a check of the sessions for inactivity took.
+     *
+     * @return the duration of the longest sweep, in microseconds.
+     */
+    public long getMaxSweepDuration() {
+        return maxSweepDuration;
     }
 
     /**
@@ -191,7 +288,12 @@ public final class ChatManager {
      * @return the ChatSession being removed.
      */
     public ChatSession removeChatSession(String chatID) {
-        return sessions.remove(chatID);
+        final ChatSession chatSession = sessions.remove(chatID);
+        if (chatSession != null) {
+            // Frees the part of the transcript that was moved to disk.
+            chatSession.getTranscript().release();
+        }
+        return chatSession;
     }
 
     /**
@@ -234,6 +336,7 @@ public final class ChatManager {
         while (iter.hasNext()) {
             ChatSession chatSession = iter.next();
             chatSession.close();
+            chatSession.getTranscript().release();
         }
         sessions = new HashMap<>();
     }
@@ -279,6 +382,24 @@ public final class ChatManager {
         return chatSettingsManager;
     }
 
+    /**
+     * Sets the limits that bound the memory used by each <code>ChatSession</code>. The limits apply
+     * to sessions that are created after this call.
+     *
+     * @param sessionLimits the SessionLimits.
+     */
+    public void setSessionLimits(SessionLimits sessionLimits) {
+        this.sessionLimits = sessionLimits;
+    }
+
+    /**
+     * Gets the limits that bound the memory used by each <code>ChatSession</code>.
+     *
+     * @return the SessionLimits.
+     */
+    public SessionLimits getSessionLimits() {
+        return sessionLimits;
+    }
 
     /**
      * Connection Handling.
@@ -312,12 +433,17 @@ public final class ChatManager {
             config.performSaslAnonymousAuthentication();
             
             xmppConn = new XMPPTCPConnection(config.build());
+            IqLatencyRecorder.attach(xmppConn, WebChatMetrics.IQ_DURATION);
             xmppConn.connect();
 
             // Login the presence bot user
             xmppConn.login();
 
             // Add Connection to Application Object
+            if (globalConnection != null) {
+                // This replaces a connection that was lost.
+                WebChatMetrics.GLOBAL_RECONNECTS.increment();
+            }
             setGlobalConnection(xmppConn);
 
             // Add a connection listener.
@@ -340,7 +466,7 @@ public final class ChatManager {
 
                 @Override
                 public void reconnectionSuccessful() {
-
+                    WebChatMetrics.GLOBAL_RECONNECTS.increment();
                 }
 
                 @Override
@@ -14,6 +14,8 @@ package org.jivesoftware.webchat;
 
 import org.jivesoftware.webchat.history.Line;
 import org.jivesoftware.webchat.history.Transcript;
+import org.jivesoftware.webchat.metrics.ChatJourney;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
 import org.jivesoftware.webchat.personal.ChatMessage;
 import org.jivesoftware.webchat.util.ModelUtil;
 import org.jivesoftware.webchat.util.WebLog;
@@ -51,8 +53,10 @@ import org.jxmpp.stringprep.XmppStringprepException;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
@@ -80,6 +84,16 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
 
     private Transcript transcript;
 
+    /**
+     * Set once the transcript is shown to the visitor at the end of the chat, after which no lines are added to it.
+     */
+    private boolean transcriptEnded;
+
+    /**
+     * Set by the first invocation of {@link #close()}.
+     */
+    private boolean closeRequested;
+
     private Resourcepart nickname;
 
     private String emailAddress;
@@ -88,7 +102,22 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
 
     private String sessionID;
 
-    private List<ChatMessage> messageList = new ArrayList<>();
+    private Deque<ChatMessage> messageList = new ArrayDeque<>();
+
+    /**
+     * Bounds the amount of memory that is retained by this session.
+     */
+    private final SessionLimits limits;
+
+    /**
+     * The estimated number of bytes retained by the messages that have not been picked up by the browser.
+     */
+    private long mailboxBytes;
+
+    /**
+     * The estimated number of bytes retained by the presence updates.
+     */
+    private long presenceBytes;
 
     /**
      * The time in milliseconds when the browser last checked for new messages.
@@ -103,6 +132,11 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
     private boolean inactivityWarningSent;
 
     final private long createdTimestamp;
+
+    /**
+     * The times at which this session reached the milestones of a chat.
+     */
+    private final ChatJourney journey = new ChatJourney();
     
     private EntityBareJid roomName;
 
@@ -129,7 +163,9 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
         this.host = host;
         this.port = port;
 
-        transcript = new Transcript();
+        this.limits = ChatManager.getInstance().getSessionLimits();
+
+        transcript = new Transcript(limits.getMaxTranscriptHeapBytes());
 
         this.nickname = nickname;
 
@@ -170,7 +206,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
                 groupChat = null;
                 connection = null;
                 messageEventManager = null;
-                presenceList.add("The connection has been closed.");
+                addPresenceUpdate("The connection has been closed.");
             }
 
             public void connectionClosedOnError(Exception e) {
@@ -179,7 +215,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
                 connection = null;
                 messageEventManager = null;
                 //e.printStackTrace();
-                presenceList.add("The connection has been closed.");
+                addPresenceUpdate("The connection has been closed.");
             }
 
 
@@ -234,6 +270,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
         boolean connected = connect(true);
         if (connected) {
             connection.login();
+            journey.reached(ChatJourney.Milestone.CONNECTED);
         }
         else {
             throw new FastPathException("Unable to connect to the server at this time.");
@@ -258,6 +295,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
         if (connected) {
             connection.login(username, password, Resourcepart.from("Live Assistant Web Client"));
             name = Resourcepart.from(username);
+            journey.reached(ChatJourney.Milestone.CONNECTED);
         }
         else {
             throw new FastPathException("Unable to connect to the server at this time.");
@@ -285,6 +323,8 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
         workgroup.addInvitationListener(new WorkgroupInvitationListener() {
             public void invitationReceived(WorkgroupInvitation workgroupInvitation) {
                 EntityBareJid room = workgroupInvitation.getGroupChatName().asEntityBareJidIfPossible();
+                ChatManager.getInstance().sessionRouted();
+                journey.reached(ChatJourney.Milestone.INVITED);
                 joinRoom(room);
             }
         });
@@ -293,6 +333,9 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
         if (workgroup != null) {
             try {
                 workgroup.joinQueue(metaData, userid);
+                WebChatMetrics.QUEUE_JOINS.increment();
+                journey.reached(ChatJourney.Milestone.QUEUED);
+                journey.setWorkgroup(workgroupName.toString());
             }
             catch (XMPPException e) {
                 WebLog.logError("Unable to join chat queue.", e);
@@ -384,14 +427,28 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
     }
 
     /**
-     * Closed the current ChatSession and all available resources.
+     * Closed the current ChatSession and all available resources. Sessions can be closed by requests, by the sweep
+     * of stale sessions and over JMX at the same time, so only the first invocation closes anything; later ones
+     * return right away.
      */
-    public void close() {
+    public synchronized void close() {
+        if (closeRequested) {
+            return;
+        }
+        closeRequested = true;
+        journey.reached(ChatJourney.Milestone.CLOSED);
+
+        // The connection listener clears these fields when the connection is closed, which can happen at any time.
+        final Workgroup workgroup = this.workgroup;
+        final MultiUserChat groupChat = this.groupChat;
+        final MessageEventManager messageEventManager = this.messageEventManager;
+        final XMPPTCPConnection connection = this.connection;
+
         // If we're currently waiting in the queue to be routed, leave the queue.
         if (workgroup != null && workgroup.isInQueue()) {
             try {
                 workgroup.departQueue();
-                workgroup = null;
+                this.workgroup = null;
             }
             catch (XMPPException | NoResponseException | NotConnectedException | InterruptedException xe) {
                 WebLog.logError("Error closing ChatSession:", xe);
@@ -405,17 +462,17 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
                 WebLog.logError("Error closing ChatSession:", e);
               
             }
-            groupChat = null;
+            this.groupChat = null;
 
             if (messageEventManager != null) {
                 messageEventManager.removeMessageEventNotificationListener(this);
-                messageEventManager = null;
+                this.messageEventManager = null;
             }
         }
         // Close the connection to the server.
         if (connection != null) {
             connection.disconnect();
-            connection = null;
+            this.connection = null;
         }
     }
 
@@ -481,6 +538,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
 
             messageEventManager = MessageEventManager.getInstanceFor(connection);
             messageEventManager.addMessageEventNotificationListener(this);
+            journey.reached(ChatJourney.Milestone.JOINED_ROOM);
         }
         catch (Exception e) {
             WebLog.logError("Error joining room:", e);
@@ -505,14 +563,63 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
     }
 
     /**
-     * Returns all messages since last request.
+     * Returns all messages since last request, and removes them from this session.
      *
-     * @return messageList
+     * @return the messages received since the last request.
      */
-    public List<ChatMessage> getMessageList() {
+    public synchronized ChatMessage[] drainMessages() {
         lastCheck = System.currentTimeMillis();
         inactivityWarningSent = false; // OF-508: reset the flag that determines if inactivity warnings are to be send.
-        return messageList;
+        final ChatMessage[] messages = messageList.toArray(new ChatMessage[messageList.size()]);
+        messageList.clear();
+        mailboxBytes = 0;
+        return messages;
+    }
+
+    /**
+     * Adds a message that is to be picked up by the browser. When the browser does not pick up messages
+     * and the maximum mailbox size is reached, the oldest message is dropped.
+     *
+     * @param message the message to add.
+     */
+    public synchronized void addMessage(ChatMessage message) {
+        while (!messageList.isEmpty() && messageList.size() >= limits.getMaxMailboxSize()) {
+            mailboxBytes -= sizeOf(messageList.removeFirst());
+        }
+        messageList.addLast(message);
+        mailboxBytes += sizeOf(message);
+    }
+
+    private synchronized void addPresenceUpdate(String update) {
+        while (!presenceList.isEmpty() && presenceList.size() >= limits.getMaxMailboxSize()) {
+            presenceBytes -= SessionLimits.sizeOf(presenceList.remove(0));
+        }
+        presenceList.add(update);
+        presenceBytes += SessionLimits.sizeOf(update);
+    }
+
+    private static long sizeOf(ChatMessage message) {
+        return SessionLimits.sizeOf(message.getFrom()) + SessionLimits.sizeOf(message.getBody())
+            + SessionLimits.sizeOf(message.getDate()) + SessionLimits.sizeOf(message.getUrlToPush());
+    }
+
+    /**
+     * Returns the estimated number of bytes that are retained by this session: undelivered messages,
+     * presence updates and the part of the transcript that is kept on the heap.
+     *
+     * @return the estimated number of bytes retained by this session.
+     */
+    public synchronized long getRetainedBytes() {
+        return mailboxBytes + presenceBytes + transcript.getHeapSize();
+    }
+
+    /**
+     * Returns the limits that bound the memory used by this session.
+     *
+     * @return the limits of this session.
+     */
+    public SessionLimits getLimits() {
+        return limits;
     }
 
     /**
@@ -590,7 +697,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
             if (!user.equals(name)) {
                 if (count > 2) {
                     ChatMessage message = new ChatMessage(packet);
-                    messageList.add(message);
+                    addMessage(message);
                 }
             }
         }
@@ -598,7 +705,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
             if (!user.equals(name)) {
                 ChatMessage message = new ChatMessage(packet);
                 message.setBody(user + " has left the conversation.");
-                messageList.add(message);
+                addMessage(message);
             }
         }
     }
@@ -608,8 +715,8 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
      *
      * @return the <code>List</code> of all Presence updates within the conversation.
      */
-    public List<String> getPresenceList() {
-        return presenceList;
+    public synchronized List<String> getPresenceList() {
+        return new ArrayList<>(presenceList);
     }
 
     /**
@@ -664,13 +771,38 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
     }
 
     /**
-     * Updates the current transcript.
+     * Stops adding lines to the transcript, so that it no longer changes while it is shown. Messages that are
+     * received afterwards are still delivered to the browser, but are not recorded.
+     */
+    public synchronized void endTranscript() {
+        transcriptEnded = true;
+    }
+
+    /**
+     * Updates the current transcript. When the transcript has reached its maximum size, the oldest lines are
+     * removed to make room, or the line is not recorded, depending on the overflow policy of this session.
      *
      * @param from who the message is from.
      * @param body the body of the message.
+     * @return true if the line was added to the transcript, false if the transcript is full or has been ended.
      */
-    public void updateTranscript(String from, String body) {
-        transcript.addLine(new Line(from, body));
+    public synchronized boolean updateTranscript(String from, String body) {
+        if (transcriptEnded) {
+            return false;
+        }
+        final Line line = new Line(from, body);
+        final long lineSize = Transcript.sizeOf(line);
+        final long maxSize = limits.getMaxTranscriptBytes();
+        if (transcript.getSize() + lineSize > maxSize) {
+            if (limits.getOverflowPolicy() != SessionLimits.OverflowPolicy.DROP_OLDEST) {
+                return false;
+            }
+            while (transcript.getSize() + lineSize > maxSize && transcript.removeFirstLine() != null) {
+                // Keep removing the oldest lines until the new line fits.
+            }
+        }
+        transcript.addLine(line);
+        return true;
     }
 
     /**
@@ -711,6 +843,15 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
         this.emailAddress = emailAddress;
     }
 
+    /**
+     * Returns the times at which this session reached the milestones of a chat.
+     *
+     * @return the journey of this session.
+     */
+    public ChatJourney getJourney() {
+        return journey;
+    }
+
     /**
      * Returns the session id for this chat session.
      *
@@ -731,7 +872,7 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
                     if (from.equals(nickname)) {
                         return;
                     }
-                    String body = message.getBody();
+                    String body = limits.truncate(message.getBody());
                     chatMessage.setFrom(from.toString());
                     chatMessage.setBody(body);
 
@@ -743,19 +884,25 @@ public class ChatSession implements MessageEventNotificationListener, StanzaList
                     }
                     else {
                         sentDate = new Date();
+
+                        // Messages from the room itself (without a nickname) are not replies of the agent.
+                        if (from.length() > 0) {
+                            journey.reached(ChatJourney.Milestone.FIRST_AGENT_MESSAGE);
+                        }
                     }
 
                     SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("MM/dd/yy h:mm");
                     String dateToInsert = "[" + DATE_FORMATTER.format(sentDate) + "] ";
                     chatMessage.setDate(dateToInsert);
 
-                    messageList.add(chatMessage);
+                    addMessage(chatMessage);
                     updateTranscript(chatMessage.getFrom(), chatMessage.getBody());
+                    WebChatMetrics.MESSAGES_RECEIVED.increment();
                 }
                 else {
                     // Check if cobrowsing
                     ChatMessage me = new ChatMessage(message);
-                    messageList.add(me);
+                    addMessage(me);
                 }
             }
         };
@@ -12,6 +12,7 @@
 package org.jivesoftware.webchat;
 
 import org.jivesoftware.webchat.actions.ChatQueue;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
 import org.jivesoftware.webchat.personal.ChatMessage;
 import org.jivesoftware.webchat.util.FormText;
 import org.jivesoftware.webchat.util.WebLog;
@@ -29,8 +30,6 @@ import org.jxmpp.jid.EntityFullJid;
 import org.jxmpp.jid.parts.Resourcepart;
 import org.jxmpp.stringprep.XmppStringprepException;
 
-import java.util.List;
-
 /**
  * ChatUtils handles basic messaging functionallity, including
  * the sending and queueing of messages.
@@ -47,39 +46,50 @@ public class ChatUtils {
      * @return an Array of <code>ChatMessages</code>
      */
     public static ChatMessage[] getAllMessages(String chatID) {
+        WebChatMetrics.POLL_REQUESTS.increment();
         ChatSession chatSession = getChatSession(chatID);
         if (chatSession == null || chatSession.isClosed()) {
             return null;
         }
 
-        List<ChatMessage> messages = chatSession.getMessageList();
-        ChatMessage[] m = (ChatMessage[])messages.toArray(new ChatMessage[messages.size()]);
-        chatSession.getMessageList().clear();
-        return m;
+        return chatSession.drainMessages();
     }
 
     /**
      * Sends a message from a given <code>ChatSession</code> that is associated with
      * a given chat id.
      *
+     * Messages that exceed the limits of the session are truncated or rejected, depending on the
+     * overflow policy of the session.
+     *
      * @param chatID  the chat id.
      * @param message the message to send.
+     * @return an error message to be shown to the user if the message was rejected, otherwise null.
      */
-    public static void sendMessage(String chatID, String message) {
+    public static String sendMessage(String chatID, String message) {
         ChatSession chatSession = getChatSession(chatID);
 
         // If the user doesn't have a chat session, notify them.
         if (chatSession == null) {
-            return;
+            return null;
         }
 
         // Notify user if the chat session has closed.
         if (chatSession.isClosed() || !chatSession.isInGroupChat()) {
-            return;
+            return null;
         }
 
         // If the message isn't specified, do nothing.
         if (message != null) {
+            final SessionLimits limits = chatSession.getLimits();
+            final boolean reject = limits.getOverflowPolicy() == SessionLimits.OverflowPolicy.REJECT;
+            if (message.length() > limits.getMaxMessageLength()) {
+                if (reject) {
+                    return "Your message was not sent, as it is longer than " + limits.getMaxMessageLength() + " characters.";
+                }
+                message = limits.truncate(message);
+            }
+
             try {
                 final MultiUserChat chat = chatSession.getGroupChat();
                 message = message.replaceAll("\r", " ");
@@ -92,7 +102,9 @@ public class ChatUtils {
                 // update the transcript:
                 String body = WebUtils.applyFilters(message);
                 Resourcepart nickname = chat.getNickname();
-                chatSession.updateTranscript(nickname.toString(), body);
+                if (!chatSession.updateTranscript(nickname.toString(), body) && reject) {
+                    return "Your message was not sent, as this chat has reached its maximum size.";
+                }
 
                 if (chat != null) {
                     final Message chatMessage = new Message();
@@ -102,12 +114,14 @@ public class ChatUtils {
                     EntityBareJid room = chat.getRoom();
                     chatMessage.setTo(room);
                     chat.sendMessage(chatMessage);
+                    WebChatMetrics.MESSAGES_SENT.increment();
                 }
             }
             catch (NotConnectedException | InterruptedException e) {
                 WebLog.logError("Error sending message:", e);
             }
         }
+        return null;
     }
 
     /**
@@ -10,20 +10,21 @@
 
 package org.jivesoftware.webchat;
 
+import org.jivesoftware.webchat.actions.AgentRosterManager;
+import org.jivesoftware.webchat.actions.WorkgroupDirectory;
 import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.history.TranscriptStore;
+import org.jivesoftware.webchat.mail.MailOutbox;
+import org.jivesoftware.webchat.management.WebChatManagement;
 import org.jivesoftware.webchat.settings.ChatSettingsManager;
+import org.jivesoftware.webchat.util.CachedImage;
 import org.jivesoftware.webchat.util.ModelUtil;
 import org.jivesoftware.webchat.util.SettingsManager;
 import org.jivesoftware.webchat.util.URLFileSystem;
 import org.jivesoftware.webchat.util.WebLog;
 
-import org.jivesoftware.smack.SmackException.NoResponseException;
-import org.jivesoftware.smack.SmackException.NotConnectedException;
-import org.jivesoftware.smack.SmackException.NotLoggedInException;
-import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.packet.Presence;
 import org.jivesoftware.smack.packet.Stanza;
-import org.jivesoftware.smack.roster.Roster;
 import org.jxmpp.jid.BareJid;
 import org.jxmpp.jid.Jid;
 import org.jxmpp.jid.impl.JidCreate;
@@ -114,9 +115,37 @@ public class FastpathServlet extends HttpServlet {
 
         chatManager.setChatSettingsManager(chatSettingsManager);
 
+        // Bound the memory used by each chat session.
+        final SessionLimits sessionLimits = new SessionLimits();
+        sessionLimits.setMaxMessageLength((int) getLongParameter("maxMessageLength", sessionLimits.getMaxMessageLength()));
+        sessionLimits.setMaxMailboxSize((int) getLongParameter("maxMailboxSize", sessionLimits.getMaxMailboxSize()));
+        sessionLimits.setMaxTranscriptBytes(getLongParameter("maxTranscriptSize", sessionLimits.getMaxTranscriptBytes()));
+        sessionLimits.setMaxTranscriptHeapBytes(getLongParameter("maxTranscriptHeapSize", sessionLimits.getMaxTranscriptHeapBytes()));
+        String overflowPolicy = getServletContext().getInitParameter("sessionOverflowPolicy");
+        if (ModelUtil.hasLength(overflowPolicy)) {
+            try {
+                sessionLimits.setOverflowPolicy(SessionLimits.OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase()));
+            }
+            catch (IllegalArgumentException e) {
+                System.err.println("The session overflow policy '" + overflowPolicy + "' is not recognized. Defaulting to " + sessionLimits.getOverflowPolicy() + ".");
+            }
+        }
+        chatManager.setSessionLimits(sessionLimits);
+
+        // Bound the number of agents whose presence the global connection subscribes to.
+        long maxRosterSize = getLongParameter("maxRosterSize", AgentRosterManager.DEFAULT_MAX_SIZE);
+        AgentRosterManager.getInstance().setMaxSize((int) Math.max(1, maxRosterSize));
+
         // Connect on Startup
         chatManager.createConnection(getServletContext());
 
+        // Keep the list of workgroups up to date in the background.
+        long workgroupRefreshInterval = getLongParameter("workgroupRefreshInterval", WorkgroupDirectory.DEFAULT_REFRESH_INTERVAL / 1000);
+        WorkgroupDirectory.getInstance().start(Math.max(1, workgroupRefreshInterval) * 1000);
+
+        // Expose the state of the web chat to management tools.
+        WebChatManagement.register(getServletContext());
+
         long minute = 1000 * 20;
         timer.scheduleAtFixedRate(new TimerTask() {
             public void run() {
@@ -131,7 +160,9 @@ public class FastpathServlet extends HttpServlet {
      * Shut down the servlet by destroying all chat sessions.
      */
     public void destroy() {
+        WebChatManagement.unregister();
         timer.cancel();
+        WorkgroupDirectory.getInstance().stop();
 
         // The servlet is shutting down, so close down all sessions.
         chatManager.destroyAllSessions();
@@ -141,6 +172,10 @@ public class FastpathServlet extends HttpServlet {
             chatManager.getGlobalConnection().disconnect();
         }
 
+        TranscriptStore.getInstance().close();
+        MailOutbox.shutdown();
+        WebLog.close();
+
         super.destroy();
     }
 
@@ -175,15 +210,8 @@ public class FastpathServlet extends HttpServlet {
             }
 
 
-            byte[] imageBytes = null;
-            if (isOnline) {
-                imageBytes = imageManager.getImage("online", workgroupJid, getServletContext());
-            }
-            else {
-                imageBytes = imageManager.getImage("offline", workgroupJid, getServletContext());
-            }
-
-            imageManager.writeBytesToStream(imageBytes, response);
+            CachedImage image = imageManager.getCachedImage(isOnline ? "online" : "offline", workgroupJid, getServletContext());
+            imageManager.writeImage(image, SettingsManager.CACHE_STATUS, request, response);
             return;
         }
 
@@ -195,8 +223,7 @@ public class FastpathServlet extends HttpServlet {
             
             boolean isOnline = WorkgroupStatus.isOnline(workgroup);
 
-            final Roster roster =  Roster.getInstanceFor( chatManager.getGlobalConnection());
-            final Presence presence = roster.getPresence(requestAgentJid);
+            final Presence presence = AgentRosterManager.getInstance().getPresence(requestAgentJid);
 
             if (isOnline && presence != null && presence.getType() == Presence.Type.available) {
                 isOnline = true;
@@ -205,15 +232,8 @@ public class FastpathServlet extends HttpServlet {
                 isOnline = false;
             }
 
-            byte[] image = null;
-            if (isOnline) {
-                image = imageManager.getImage("online", workgroupJid, getServletContext());
-            }
-            else {
-                image = imageManager.getImage("offline", workgroupJid, getServletContext());
-            }
-
-            imageManager.writeBytesToStream(image, response);
+            CachedImage image = imageManager.getCachedImage(isOnline ? "online" : "offline", workgroupJid, getServletContext());
+            imageManager.writeImage(image, SettingsManager.CACHE_STATUS, request, response);
             return;
         }
 
@@ -225,8 +245,7 @@ public class FastpathServlet extends HttpServlet {
             
             boolean isOnline = WorkgroupStatus.isOnline(workgroup);
 
-            final Roster roster =  Roster.getInstanceFor( chatManager.getGlobalConnection());
-            final Presence presence = roster.getPresence(requestAgentJid);
+            final Presence presence = AgentRosterManager.getInstance().getPresence(requestAgentJid);
 
             if (isOnline && presence != null && presence.getType() == Presence.Type.available) {
                 isOnline = true;
@@ -236,26 +255,11 @@ public class FastpathServlet extends HttpServlet {
             }
 
             if (!isOnline) {
-                Object o = roster.getEntry(requestAgentJid);
-                if (o == null) {
-                    try {
-                        roster.createEntry(requestAgentJid, requestAgent, null);
-                    }
-                    catch (XMPPException | NotLoggedInException | NoResponseException | NotConnectedException | InterruptedException e) {
-                        WebLog.logError("Error checking roster", e);
-                    }
-                }
-            }
-
-            byte[] image = null;
-            if (isOnline) {
-                image = imageManager.getImage("personalonline", workgroupJid, getServletContext());
-            }
-            else {
-                image = imageManager.getImage("personaloffline", workgroupJid, getServletContext());
+                AgentRosterManager.getInstance().subscribe(requestAgentJid);
             }
 
-            imageManager.writeBytesToStream(image, response);
+            CachedImage image = imageManager.getCachedImage(isOnline ? "personalonline" : "personaloffline", workgroupJid, getServletContext());
+            imageManager.writeImage(image, SettingsManager.CACHE_STATUS, request, response);
             return;
         }
 
@@ -305,6 +309,26 @@ public class FastpathServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Returns the numeric value of a context parameter.
+     *
+     * @param name         the name of the context parameter.
+     * @param defaultValue the value to use if the parameter is not set, or not a number.
+     * @return the value of the context parameter.
+     */
+    private long getLongParameter(String name, long defaultValue) {
+        final String value = getServletContext().getInitParameter(name);
+        if (ModelUtil.hasLength(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            }
+            catch (NumberFormatException e) {
+                System.err.println("The value of context parameter '" + name + "' is not a number. Defaulting to " + defaultValue + ".");
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * convenience method, used ultimately in constructing packet filters.
      * @param p 
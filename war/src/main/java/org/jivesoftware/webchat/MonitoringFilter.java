@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat;
+
+import org.jivesoftware.webchat.util.ModelUtil;
+import org.jivesoftware.webchat.util.WebLog;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Restricts the pages that expose how the web chat is used (workgroup names, traffic, the state of the connection)
+ * to the hosts that are allowed to monitor it. These are the hosts that are listed in the <tt>allowedMetricsHosts</tt>
+ * context parameter (comma separated names or addresses, or <tt>*</tt> to allow all hosts). Other hosts are answered
+ * with <tt>403 Forbidden</tt>, and so is everyone if the parameter is not set.
+ * <p>
+ * The local host is not allowed unless it is listed (as <tt>localhost</tt>, for instance): when a web server on the
+ * same machine proxies requests to the servlet container, every visitor appears to connect from the local host.
+ * <p>
+ * Access can also be restricted by the container, with a <tt>security-constraint</tt> in <tt>web.xml</tt>.
+ */
+public class MonitoringFilter implements Filter {
+
+    /**
+     * The name of the context parameter that lists the hosts that may monitor the web chat.
+     */
+    public static final String ALLOWED_HOSTS = "allowedMetricsHosts";
+
+    private final Set<InetAddress> allowedAddresses = new HashSet<>();
+    private boolean allowAll;
+
+    public void init(FilterConfig filterConfig) throws ServletException {
+        final String allowedHosts = filterConfig.getServletContext().getInitParameter(ALLOWED_HOSTS);
+        if (!ModelUtil.hasLength(allowedHosts)) {
+            return;
+        }
+        for (String host : allowedHosts.split(",")) {
+            host = host.trim();
+            if ("*".equals(host)) {
+                allowAll = true;
+            }
+            else if (host.length() > 0) {
+                try {
+                    allowedAddresses.addAll(Arrays.asList(InetAddress.getAllByName(host)));
+                }
+                catch (UnknownHostException e) {
+                    WebLog.logError("Unknown host in " + ALLOWED_HOSTS + ": " + host);
+                }
+            }
+        }
+    }
+
+    public void destroy() {
+    }
+
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!isAllowed(request.getRemoteAddr())) {
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private boolean isAllowed(String remoteAddress) {
+        if (allowAll) {
+            return true;
+        }
+        try {
+            // The remote address is a literal, so this does not look up any name.
+            final InetAddress address = InetAddress.getByName(remoteAddress);
+            return allowedAddresses.contains(address);
+        }
+        catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat;
+
+/**
+ * Bounds the amount of memory that a single {@link ChatSession} can retain. The limits are configured through
+ * context parameters in web.xml (see {@link FastpathServlet}), and apply to:
+ * <ul>
+ *     <li>the length of a single message body;</li>
+ *     <li>the number of messages that are waiting to be picked up by the browser (the mailbox);</li>
+ *     <li>the (estimated) size of the transcript, and the part of it that is kept on the heap.</li>
+ * </ul>
+ * What happens when a limit is reached is defined by the {@link OverflowPolicy}.
+ */
+public class SessionLimits {
+
+    /**
+     * Defines what happens when a session reaches one of its limits.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Messages that are too long are cut off. Once the transcript is full, no new lines are recorded. The oldest
+         * undelivered messages are dropped when the mailbox is full.
+         */
+        TRUNCATE,
+
+        /**
+         * Messages that are too long are cut off. The oldest transcript lines and the oldest undelivered messages
+         * are dropped to make room for new ones.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Messages from the visitor that are too long, or that do not fit in the transcript anymore, are not sent
+         * and an error is returned to the client. Messages received from agents are truncated, and the oldest
+         * undelivered messages are dropped when the mailbox is full.
+         */
+        REJECT
+    }
+
+    /**
+     * The approximate number of bytes that every retained object costs, on top of its character data.
+     */
+    private static final int OBJECT_OVERHEAD = 48;
+
+    private int maxMessageLength = 8 * 1024;
+    private int maxMailboxSize = 250;
+    private long maxTranscriptBytes = 1024 * 1024;
+    private long maxTranscriptHeapBytes = 64 * 1024;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Returns the estimated amount of heap that is used to retain the given text.
+     *
+     * @param text the text (can be null).
+     * @return the estimated number of bytes retained.
+     */
+    public static long sizeOf(String text) {
+        return OBJECT_OVERHEAD + (text == null ? 0 : 2L * text.length());
+    }
+
+    /**
+     * Returns the maximum number of characters in a message body.
+     *
+     * @return the maximum number of characters in a message body.
+     */
+    public int getMaxMessageLength() {
+        return maxMessageLength;
+    }
+
+    public void setMaxMessageLength(int maxMessageLength) {
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    /**
+     * Returns the maximum number of messages that are retained for the browser to pick up.
+     *
+     * @return the maximum number of undelivered messages.
+     */
+    public int getMaxMailboxSize() {
+        return maxMailboxSize;
+    }
+
+    public void setMaxMailboxSize(int maxMailboxSize) {
+        this.maxMailboxSize = maxMailboxSize;
+    }
+
+    /**
+     * Returns the maximum (estimated) number of bytes that a transcript can retain.
+     *
+     * @return the maximum size of a transcript, in bytes.
+     */
+    public long getMaxTranscriptBytes() {
+        return maxTranscriptBytes;
+    }
+
+    public void setMaxTranscriptBytes(long maxTranscriptBytes) {
+        this.maxTranscriptBytes = maxTranscriptBytes;
+    }
+
+    /**
+     * Returns the maximum (estimated) number of bytes of a transcript that are kept on the heap. Older lines are
+     * moved to the {@link org.jivesoftware.webchat.history.TranscriptStore}.
+     *
+     * @return the maximum size of the part of a transcript that is kept on the heap, in bytes.
+     */
+    public long getMaxTranscriptHeapBytes() {
+        return maxTranscriptHeapBytes;
+    }
+
+    public void setMaxTranscriptHeapBytes(long maxTranscriptHeapBytes) {
+        this.maxTranscriptHeapBytes = maxTranscriptHeapBytes;
+    }
+
+    /**
+     * Returns what happens when a limit is reached.
+     *
+     * @return the overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Returns the text, cut off at the maximum message length.
+     *
+     * @param text the text to truncate.
+     * @return the (possibly) truncated text.
+     */
+    public String truncate(String text) {
+        if (text == null || text.length() <= maxMessageLength) {
+            return text;
+        }
+        return text.substring(0, maxMessageLength);
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.actions;
+
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.packet.Presence;
+import org.jxmpp.jid.BareJid;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the availability of agents, as determined by sending them a directed presence. Concurrent lookups of the
+ * same agent share a single probe, and its outcome is cached for a short while. Any presence that is received from
+ * an agent afterwards invalidates the cached outcome.
+ * <p>
+ * The answers to probes are not collected by a dedicated collector, but are handed to this cache by the presence
+ * listener of {@link WorkgroupPresenceManager}.
+ */
+public final class AgentPresenceCache {
+
+    /**
+     * The default number of milliseconds that the outcome of a probe is used.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 15 * 1000;
+
+    /**
+     * The maximum number of agents of which the outcome of a probe is cached. The addresses of agents can come from
+     * requests, so the least recently used outcomes are discarded beyond this.
+     */
+    public static final int MAX_SIZE = 1000;
+
+    /**
+     * The outcomes of probes, in the order in which they were last used. Guarded by itself.
+     */
+    private final LinkedHashMap<BareJid, Entry> results = new LinkedHashMap<BareJid, AgentPresenceCache.Entry>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<BareJid, AgentPresenceCache.Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+    private final ConcurrentMap<BareJid, CompletableFuture<Boolean>> probes = new ConcurrentHashMap<>();
+
+    private final LongAdder lookupCount = new LongAdder();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder probeCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    AgentPresenceCache() {
+    }
+
+    /**
+     * Returns true if the agent is available. A cached outcome is used if there is one, otherwise the agent is
+     * probed, or the outcome of a probe that is already in progress is awaited.
+     *
+     * @param connection the connection used to send the probe.
+     * @param agentJid   the agent.
+     * @return true if the agent is available.
+     * @throws NotConnectedException if the probe could not be sent.
+     * @throws InterruptedException  if interrupted while waiting for the answer.
+     */
+    boolean isAvailable(XMPPConnection connection, BareJid agentJid) throws NotConnectedException, InterruptedException {
+        lookupCount.increment();
+
+        synchronized (results) {
+            final Entry entry = results.get(agentJid);
+            if (entry != null) {
+                if (entry.expires > System.currentTimeMillis()) {
+                    hitCount.increment();
+                    return entry.available;
+                }
+                results.remove(agentJid);
+            }
+        }
+
+        CompletableFuture<Boolean> probe = new CompletableFuture<>();
+        final CompletableFuture<Boolean> existing = probes.putIfAbsent(agentJid, probe);
+        if (existing != null) {
+            coalescedCount.increment();
+            probe = existing;
+        }
+        else {
+            probeCount.increment();
+            final Presence directedPresence = new Presence(Presence.Type.available);
+            //TODO directedPresence.setProperty("anonymous", true);
+            directedPresence.setTo(agentJid);
+            try {
+                connection.sendStanza(directedPresence);
+            }
+            catch (NotConnectedException | InterruptedException e) {
+                // Let anyone that is waiting for this probe try again.
+                probes.remove(agentJid, probe);
+                probe.complete(false);
+                throw e;
+            }
+        }
+
+        try {
+            return probe.get(connection.getReplyTimeout(), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            // The agent did not answer. Only one of the waiting threads records that.
+            if (probes.remove(agentJid, probe)) {
+                timeoutCount.increment();
+                store(agentJid, false);
+                probe.complete(false);
+            }
+            return false;
+        }
+        catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Processes a presence that was received from any entity. If it answers a probe, then its outcome is cached.
+     * Otherwise, any cached outcome for the sender is invalidated.
+     *
+     * @param presence the received presence.
+     */
+    void presenceReceived(Presence presence) {
+        final BareJid from = presence.getFrom().asBareJid();
+        final CompletableFuture<Boolean> probe = probes.remove(from);
+        if (probe != null) {
+            final boolean available = presence.getType() == Presence.Type.available && presence.getError() == null;
+            store(from, available);
+            probe.complete(available);
+        }
+        else {
+            synchronized (results) {
+                results.remove(from);
+            }
+        }
+    }
+
+    /**
+     * Caches the outcome of a probe, and removes the outcomes that have expired.
+     */
+    private void store(BareJid agentJid, boolean available) {
+        final long now = System.currentTimeMillis();
+        synchronized (results) {
+            final Iterator<Entry> iterator = results.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expires <= now) {
+                    iterator.remove();
+                }
+            }
+            results.put(agentJid, new Entry(available, now + timeToLive));
+        }
+    }
+
+    /**
+     * Removes all cached outcomes.
+     */
+    void clear() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    /**
+     * Returns the number of milliseconds that the outcome of a probe is used.
+     *
+     * @return the time to live of cached outcomes, in milliseconds.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the number of times the availability of an agent was requested.
+     *
+     * @return the number of lookups.
+     */
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of directed presences that were sent to agents.
+     *
+     * @return the number of probes.
+     */
+    public long getProbeCount() {
+        return probeCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups that waited for a probe that was already in progress.
+     *
+     * @return the number of coalesced lookups.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Returns the number of probes that were not answered within the reply timeout.
+     *
+     * @return the number of timed out probes.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * Returns the number of agents of which the availability is cached.
+     *
+     * @return the number of cached outcomes.
+     */
+    public int size() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    private static final class Entry {
+        private final boolean available;
+        private final long expires;
+
+        private Entry(boolean available, long expires) {
+            this.available = available;
+            this.expires = expires;
+        }
+    }
+}
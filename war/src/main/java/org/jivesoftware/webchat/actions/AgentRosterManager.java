@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.actions;
+
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.util.WebLog;
+
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.roster.Roster;
+import org.jivesoftware.smack.roster.RosterEntry;
+import org.jxmpp.jid.BareJid;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Manages the roster entries of the global connection, which subscribe it to the presence of the agents that pages
+ * show a personal "chat now" button for. The number of entries is bounded: when a new agent is subscribed to while
+ * the maximum has been reached, the agent whose presence was looked up least recently is removed from the roster.
+ * <p>
+ * Entries are added to and removed from the roster in the background, so that requests never wait for the server.
+ * As agent addresses come from requests, the number of pending roster updates is bounded as well: an agent that is
+ * evicted before it was added is never added, and updates beyond {@link #QUEUE_SIZE} are dropped (an agent whose
+ * entry was not added is subscribed to again when it is next looked up).
+ */
+public final class AgentRosterManager {
+
+    /**
+     * The default maximum number of agents that are subscribed to.
+     */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    /**
+     * The maximum number of roster updates that wait to be done.
+     */
+    public static final int QUEUE_SIZE = 1000;
+
+    private static final AgentRosterManager INSTANCE = new AgentRosterManager();
+
+    /**
+     * The subscribed agents, least recently used first.
+     */
+    private final LinkedHashMap<BareJid, Boolean> agents = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The connection that the subscribed agents are in the roster of.
+     */
+    private XMPPConnection connection;
+
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    private final LongAdder subscriptionCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final ThreadPoolExecutor executor;
+
+    public static AgentRosterManager getInstance() {
+        return INSTANCE;
+    }
+
+    private AgentRosterManager() {
+        executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "Agent roster");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the presence of an agent, as known by the roster of the global connection. Looking up the presence of
+     * an agent that is subscribed to marks it as recently used.
+     *
+     * @param agentJid the agent.
+     * @return the presence of the agent (unavailable if it is unknown).
+     */
+    public Presence getPresence(BareJid agentJid) {
+        final XMPPConnection globalConnection = ChatManager.getInstance().getGlobalConnection();
+        synchronized (this) {
+            if (globalConnection == connection) {
+                agents.get(agentJid);
+            }
+        }
+        return Roster.getInstanceFor(globalConnection).getPresence(agentJid);
+    }
+
+    /**
+     * Subscribes to the presence of an agent, by adding it to the roster of the global connection (unless it is
+     * in the roster already). The agent that was used least recently is removed from the roster if that makes the
+     * roster exceed its maximum size.
+     *
+     * @param agentJid the agent.
+     */
+    public void subscribe(final BareJid agentJid) {
+        final XMPPConnection globalConnection = ChatManager.getInstance().getGlobalConnection();
+        final Roster roster = Roster.getInstanceFor(globalConnection);
+        final List<BareJid> evicted;
+        synchronized (this) {
+            if (globalConnection != connection) {
+                // A new connection has a roster of its own.
+                agents.clear();
+                connection = globalConnection;
+            }
+            if (!agents.containsKey(agentJid) && executor.getQueue().remainingCapacity() == 0) {
+                // Leaves the subscribed agents alone, rather than evicting them for an agent that is not added.
+                droppedCount.increment();
+                return;
+            }
+            if (agents.put(agentJid, Boolean.TRUE) != null) {
+                return;
+            }
+            evicted = evict();
+        }
+
+        // Roster updates are done in order, so that an agent that is evicted and subscribed to again right away
+        // ends up in the roster.
+        final boolean queued = execute(new Runnable() {
+            public void run() {
+                synchronized (AgentRosterManager.this) {
+                    if (!agents.containsKey(agentJid)) {
+                        // Evicted before it was added, which is what a flood of made up addresses leads to.
+                        return;
+                    }
+                }
+                if (roster.getEntry(agentJid) != null) {
+                    return;
+                }
+                subscriptionCount.increment();
+                try {
+                    roster.createEntry(agentJid, agentJid.toString(), null);
+                }
+                catch (Exception e) {
+                    failureCount.increment();
+                    synchronized (AgentRosterManager.this) {
+                        agents.remove(agentJid);
+                    }
+                    WebLog.logError("Error creating new roster entry for " + agentJid, e);
+                }
+            }
+        });
+        if (!queued) {
+            synchronized (this) {
+                agents.remove(agentJid);
+            }
+        }
+
+        for (final BareJid evictedJid : evicted) {
+            evictionCount.increment();
+            execute(new Runnable() {
+                public void run() {
+                    synchronized (AgentRosterManager.this) {
+                        if (agents.containsKey(evictedJid)) {
+                            // Subscribed to again in the meantime.
+                            return;
+                        }
+                    }
+                    final RosterEntry entry = roster.getEntry(evictedJid);
+                    if (entry == null) {
+                        return;
+                    }
+                    try {
+                        roster.removeEntry(entry);
+                    }
+                    catch (Exception e) {
+                        failureCount.increment();
+                        WebLog.logError("Error removing roster entry for " + evictedJid, e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes the least recently used agents until no more than the maximum number of agents are subscribed to.
+     * Must be called while holding the lock of this instance.
+     *
+     * @return the agents that were removed.
+     */
+    private List<BareJid> evict() {
+        final List<BareJid> evicted = new ArrayList<>();
+        final Iterator<Map.Entry<BareJid, Boolean>> iterator = agents.entrySet().iterator();
+        while (agents.size() > maxSize && iterator.hasNext()) {
+            evicted.add(iterator.next().getKey());
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    /**
+     * Queues a roster update.
+     *
+     * @return false if the update was dropped, because too many updates are waiting already.
+     */
+    private boolean execute(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            droppedCount.increment();
+            WebLog.logError("Unable to update the roster, " + executor.getQueue().size() + " updates are waiting.");
+            return false;
+        }
+    }
+
+    /**
+     * Returns the maximum number of agents that are subscribed to.
+     *
+     * @return the maximum number of agents.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of agents that are subscribed to. If more agents are subscribed to, the least
+     * recently used ones are removed once the next agent is subscribed to.
+     *
+     * @param maxSize the maximum number of agents.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the number of agents that are subscribed to.
+     *
+     * @return the number of agents that are subscribed to.
+     */
+    public synchronized int getSize() {
+        return agents.size();
+    }
+
+    /**
+     * Returns the number of entries in the roster of the global connection.
+     *
+     * @return the number of roster entries, or 0 if there is no connection.
+     */
+    public int getRosterSize() {
+        final XMPPConnection globalConnection = ChatManager.getInstance().getGlobalConnection();
+        return globalConnection != null ? Roster.getInstanceFor(globalConnection).getEntryCount() : 0;
+    }
+
+    /**
+     * Returns the number of agents that have been added to the roster.
+     *
+     * @return the number of roster entries that have been created.
+     */
+    public long getSubscriptionCount() {
+        return subscriptionCount.sum();
+    }
+
+    /**
+     * Returns the number of agents that have been removed from the roster, as they were used least recently.
+     *
+     * @return the number of roster entries that have been evicted.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Returns the number of roster entries that could not be added or removed.
+     *
+     * @return the number of failed roster updates.
+     */
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * Returns the number of roster updates that were dropped, because too many updates were waiting.
+     *
+     * @return the number of dropped roster updates.
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+}
@@ -18,6 +18,7 @@ import org.jivesoftware.smackx.workgroup.settings.WorkgroupProperties;
 import org.jivesoftware.smackx.workgroup.user.Workgroup;
 import org.jivesoftware.webchat.ChatManager;
 import org.jivesoftware.webchat.ChatSession;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
 import org.jivesoftware.webchat.providers.MetaDataProvider;
 import org.jivesoftware.webchat.settings.ChatSettingsManager;
 import org.jivesoftware.webchat.settings.ConnectionSettings;
@@ -278,6 +279,7 @@ public class ChatStarter extends WebBean {
             }
 
             chatManager.addChatSession(chatID, chatSession);
+            WebChatMetrics.CHAT_STARTS.increment();
             chatSession.joinQueue(workgroupJid, filteredData);
 
             try {
@@ -17,6 +17,8 @@ import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smackx.muc.MultiUserChat;
 import org.jivesoftware.smackx.xevent.MessageEventManager;
 import org.jivesoftware.webchat.ChatSession;
+import org.jivesoftware.webchat.SessionLimits;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
 import org.jivesoftware.webchat.util.WebLog;
 import org.jivesoftware.webchat.util.WebUtils;
 
@@ -56,6 +58,15 @@ public final class ChatWriter {
 
         // If the message isn't specified, do nothing.
         if (message != null) {
+            final SessionLimits limits = chatSession.getLimits();
+            final boolean reject = limits.getOverflowPolicy() == SessionLimits.OverflowPolicy.REJECT;
+            if (message.length() > limits.getMaxMessageLength()) {
+                if (reject) {
+                    return;
+                }
+                message = limits.truncate(message);
+            }
+
             try {
                 final MultiUserChat chat = chatSession.getGroupChat();
                 message = message.replaceAll("\r", " ");
@@ -63,7 +74,9 @@ public final class ChatWriter {
                 // update the transcript:
                 String body = WebUtils.applyFilters(message);
                 Resourcepart nickname = chat.getNickname();
-                chatSession.updateTranscript(nickname.toString(), body);
+                if (!chatSession.updateTranscript(nickname.toString(), body) && reject) {
+                    return;
+                }
 
                 if (chat != null) {
                     final Message chatMessage = new Message();
@@ -73,6 +86,7 @@ public final class ChatWriter {
                     EntityBareJid room = chat.getRoom();
                     chatMessage.setTo(room);
                     chat.sendMessage(chatMessage);
+                    WebChatMetrics.MESSAGES_SENT.increment();
                 }
             }
             catch ( NotConnectedException | InterruptedException e) {
@@ -0,0 +1,25 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.actions;
+
+/**
+ * Is notified when a workgroup goes online or offline. Listeners are invoked on the thread that processes the
+ * presence of the workgroup, and should return quickly.
+ *
+ * @see WorkgroupStatus#addAvailabilityListener(WorkgroupAvailabilityListener)
+ */
+public interface WorkgroupAvailabilityListener {
+
+    /**
+     * Invoked when the availability of a workgroup has changed.
+     *
+     * @param snapshot the new availability of the workgroup.
+     */
+    void availabilityChanged(WorkgroupSnapshot snapshot);
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.actions;
+
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.settings.ConnectionSettings;
+import org.jivesoftware.webchat.util.WebLog;
+
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.XMPPException;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smackx.disco.ServiceDiscoveryManager;
+import org.jivesoftware.smackx.disco.packet.DiscoverItems;
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.stringprep.XmppStringprepException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the list of workgroups that are hosted by the workgroup service of the server. The list is retrieved
+ * (using service discovery) in the background: periodically, after reconnecting, and when a presence is received
+ * from a workgroup that is not in the list. Requests never wait for service discovery; until the first
+ * retrieval has completed, the list is empty.
+ */
+public final class WorkgroupDirectory {
+
+    /**
+     * The default number of milliseconds between two retrievals of the list of workgroups.
+     */
+    public static final long DEFAULT_REFRESH_INTERVAL = 5 * 60 * 1000;
+
+    // Delays refreshes that are triggered by presence, so that a burst of presences leads to one refresh.
+    private static final long REFRESH_DELAY = 2 * 1000;
+
+    private static final WorkgroupDirectory INSTANCE = new WorkgroupDirectory();
+
+    private volatile Directory directory = new Directory(Collections.<String>emptyList(), Collections.<Jid>emptySet(), 0);
+
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private Timer timer;
+    private TimerTask periodicRefresh;
+
+    /**
+     * Set once {@link #stop()} was invoked, after which no refresh is scheduled (and no timer thread created) until
+     * the directory is started again.
+     */
+    private boolean stopped;
+
+    public static WorkgroupDirectory getInstance() {
+        return INSTANCE;
+    }
+
+    private WorkgroupDirectory() {
+    }
+
+    /**
+     * Starts refreshing the list of workgroups periodically, replacing the previous schedule (if any).
+     *
+     * @param interval the number of milliseconds between two refreshes.
+     */
+    public synchronized void start(long interval) {
+        stopped = false;
+        if (periodicRefresh != null) {
+            periodicRefresh.cancel();
+        }
+        periodicRefresh = new TimerTask() {
+            public void run() {
+                refresh();
+            }
+        };
+        getTimer().schedule(periodicRefresh, 0, interval);
+    }
+
+    /**
+     * Stops all refreshes, and releases the thread that performs them.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+        periodicRefresh = null;
+        refreshPending.set(false);
+    }
+
+    /**
+     * Returns the names of all workgroups, as last retrieved. This never blocks.
+     *
+     * @return an immutable list of workgroup names.
+     */
+    public List<String> getWorkgroupNames() {
+        final Directory current = directory;
+        if (current.timestamp == 0) {
+            refreshSoon(0);
+        }
+        return current.names;
+    }
+
+    /**
+     * Returns whether a workgroup was listed when the list of workgroups was last retrieved. This never blocks, and
+     * can be used to keep addresses that are passed in requests from causing queries or subscriptions.
+     *
+     * @param workgroupJid the workgroup.
+     * @return true if the workgroup is known.
+     */
+    public boolean contains(Jid workgroupJid) {
+        final Directory current = directory;
+        if (current.timestamp == 0) {
+            refreshSoon(0);
+        }
+        return current.workgroups.contains(workgroupJid.asBareJid());
+    }
+
+    /**
+     * Returns the time at which the list of workgroups was last retrieved.
+     *
+     * @return the time of the last refresh (in milliseconds), or 0 if there has not been one.
+     */
+    public long getLastRefresh() {
+        return directory.timestamp;
+    }
+
+    /**
+     * Schedules a refresh when a presence is received from a workgroup that is not known yet, or
+     * when a known workgroup becomes unavailable (which happens when it is removed).
+     *
+     * @param presence a presence that was received from any entity.
+     */
+    void presenceReceived(Presence presence) {
+        final BareJid from = presence.getFrom().asBareJid();
+        if (!from.hasLocalpart() || !from.getDomain().toString().startsWith("workgroup.")) {
+            return;
+        }
+        final boolean known = directory.workgroups.contains(from);
+        if (known ? presence.getType() == Presence.Type.unavailable : presence.getType() == Presence.Type.available) {
+            refreshSoon(REFRESH_DELAY);
+        }
+    }
+
+    /**
+     * Schedules a refresh, unless one is already pending.
+     *
+     * @param delay the number of milliseconds to wait before refreshing.
+     */
+    void refreshSoon(long delay) {
+        if (!refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        final TimerTask task = new TimerTask() {
+            public void run() {
+                refresh();
+            }
+        };
+        synchronized (this) {
+            if (stopped) {
+                // A late presence or reconnect after the web application was shut down.
+                refreshPending.set(false);
+                return;
+            }
+            getTimer().schedule(task, delay);
+        }
+    }
+
+    private synchronized Timer getTimer() {
+        if (stopped) {
+            throw new IllegalStateException("The workgroup directory has been stopped.");
+        }
+        if (timer == null) {
+            timer = new Timer("Workgroup directory", true);
+        }
+        return timer;
+    }
+
+    private void refresh() {
+        refreshPending.set(false);
+
+        ChatManager chatManager = ChatManager.getInstance();
+        ConnectionSettings connectionSettings = chatManager.getChatSettingsManager() != null ? chatManager.getChatSettingsManager().getSettings() : null;
+        XMPPConnection con = chatManager.getGlobalConnection();
+        if (connectionSettings == null || con == null || !con.isAuthenticated()) {
+            return;
+        }
+
+        try {
+            Jid jid = JidCreate.from("workgroup." + connectionSettings.getServerDomain());
+            DiscoverItems result = ServiceDiscoveryManager.getInstanceFor(con).discoverItems(jid);
+
+            final List<String> names = new ArrayList<>();
+            final Set<Jid> workgroups = new HashSet<>();
+            for (DiscoverItems.Item item : result.getItems()) {
+                names.add(item.getName());
+                workgroups.add(item.getEntityID().asBareJid());
+            }
+            directory = new Directory(Collections.unmodifiableList(names), Collections.unmodifiableSet(workgroups), System.currentTimeMillis());
+        }
+        catch (XMPPException | NoResponseException | NotConnectedException | XmppStringprepException e) {
+            WebLog.logError("Unable to retrieve the list of workgroups: " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (RuntimeException e) {
+            // Thrown out of a TimerTask, this would kill the timer thread, and with it all later refreshes.
+            WebLog.logError("Unable to retrieve the list of workgroups.", e);
+        }
+    }
+
+    /**
+     * An immutable result of service discovery.
+     */
+    private static final class Directory {
+        private final List<String> names;
+        private final Set<Jid> workgroups;
+        private final long timestamp;
+
+        private Directory(List<String> names, Set<Jid> workgroups, long timestamp) {
+            this.names = names;
+            this.workgroups = workgroups;
+            this.timestamp = timestamp;
+        }
+    }
+}
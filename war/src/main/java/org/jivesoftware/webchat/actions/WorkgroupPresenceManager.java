@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.actions;
+
+import org.jivesoftware.webchat.util.WebLog;
+
+import org.jivesoftware.smack.StanzaListener;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.Jid;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the one presence listener that the webchat registers on the global connection. Every presence stanza is
+ * dispatched to that listener, which looks up the (bare) address of the sender in an index of subscribed
+ * workgroups. This keeps the cost of processing a presence constant, regardless of the number of workgroups that
+ * are being tracked, and of the number of times that the connection has been re-established.
+ * <p>
+ * Workgroups are subscribed to the first time that their availability is requested. Subscriptions are kept until
+ * the manager is attached to a new connection.
+ * <p>
+ * The same listener passes every presence on to the {@link AgentPresenceCache} and the
+ * {@link WorkgroupDirectory}.
+ */
+final class WorkgroupPresenceManager {
+
+    // The addresses of the workgroups of which presence updates are tracked.
+    private final Set<BareJid> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // The last known availability of each subscribed workgroup.
+    private final ConcurrentMap<BareJid, WorkgroupSnapshot> index = new ConcurrentHashMap<>();
+
+    // The number of listeners that are currently registered on a connection.
+    private final AtomicInteger registeredListeners = new AtomicInteger();
+
+    private final StanzaListener listener = new StanzaListener() {
+        @Override
+        public void processStanza(Stanza packet) {
+            presenceReceived((Presence) packet);
+        }
+    };
+
+    // The availability of agents, which is also updated by this listener.
+    private final AgentPresenceCache agentPresenceCache;
+
+    private XMPPConnection connection;
+
+    WorkgroupPresenceManager(AgentPresenceCache agentPresenceCache) {
+        this.agentPresenceCache = agentPresenceCache;
+    }
+
+    /**
+     * Registers the presence listener on a connection, removing it from the connection that was used before (if
+     * any). All subscriptions and known availabilities are discarded, as these may have changed while there was no
+     * connection.
+     *
+     * @param connection the (new) global connection.
+     */
+    synchronized void attach(XMPPConnection connection) {
+        if (this.connection != null) {
+            this.connection.removeAsyncStanzaListener(listener);
+            registeredListeners.decrementAndGet();
+        }
+        subscriptions.clear();
+        index.clear();
+        agentPresenceCache.clear();
+
+        this.connection = connection;
+        connection.addAsyncStanzaListener(listener, new StanzaTypeFilter(Presence.class));
+        registeredListeners.incrementAndGet();
+    }
+
+    /**
+     * Starts tracking the presence of a workgroup. Subscribing to a workgroup that is already tracked has no effect.
+     *
+     * @param workgroupJid the workgroup.
+     */
+    void subscribe(Jid workgroupJid) {
+        subscriptions.add(workgroupJid.asBareJid());
+    }
+
+    /**
+     * Records the availability of a workgroup, unless a more recent one has been received in the mean time.
+     *
+     * @param snapshot the availability of the workgroup.
+     * @return the availability that is now known for the workgroup.
+     */
+    WorkgroupSnapshot putIfAbsent(WorkgroupSnapshot snapshot) {
+        final WorkgroupSnapshot existing = index.putIfAbsent(snapshot.getWorkgroupJid().asBareJid(), snapshot);
+        return existing != null ? existing : snapshot;
+    }
+
+    /**
+     * Returns the last known availability of a workgroup.
+     *
+     * @param workgroupJid the workgroup.
+     * @return the availability of the workgroup, or null if it is not known.
+     */
+    WorkgroupSnapshot get(Jid workgroupJid) {
+        return index.get(workgroupJid.asBareJid());
+    }
+
+    /**
+     * Returns an immutable copy of the last known availability of all workgroups.
+     *
+     * @return the availability of all known workgroups.
+     */
+    Map<Jid, WorkgroupSnapshot> getAll() {
+        return Collections.unmodifiableMap(new HashMap<Jid, WorkgroupSnapshot>(index));
+    }
+
+    /**
+     * Returns the number of presence listeners that are registered on the global connection. This should never be
+     * more than one.
+     *
+     * @return the number of registered presence listeners.
+     */
+    int getRegisteredListenerCount() {
+        return registeredListeners.get();
+    }
+
+    /**
+     * Returns the number of workgroups of which the presence is tracked.
+     *
+     * @return the number of subscribed workgroups.
+     */
+    int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    private void presenceReceived(Presence presence) {
+        if (presence.getFrom() == null) {
+            return;
+        }
+
+        final BareJid from = presence.getFrom().asBareJid();
+        if (subscriptions.contains(from)) {
+            final WorkgroupSnapshot snapshot = new WorkgroupSnapshot(from, presence.getType() == Presence.Type.available);
+            final WorkgroupSnapshot previous = index.put(from, snapshot);
+            if (previous == null || previous.isAvailable() != snapshot.isAvailable()) {
+                WorkgroupStatus.fireAvailabilityChanged(snapshot);
+            }
+        }
+
+        try {
+            agentPresenceCache.presenceReceived(presence);
+            WorkgroupDirectory.getInstance().presenceReceived(presence);
+            WorkgroupStatus.processWorkgroupPresence(presence);
+        }
+        catch (RuntimeException e) {
+            WebLog.logError("Error processing workgroup presence.", e);
+        }
+    }
+}
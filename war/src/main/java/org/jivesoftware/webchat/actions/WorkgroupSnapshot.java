@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.actions;
+
+import org.jxmpp.jid.Jid;
+
+/**
+ * An immutable view of the availability of a workgroup, as last observed by {@link WorkgroupStatus}. Snapshots
+ * are replaced (never modified) when a new presence of the workgroup is received, which allows them to be shared
+ * between threads freely.
+ */
+public final class WorkgroupSnapshot {
+    private final Jid workgroupJid;
+    private final boolean available;
+    private final long timestamp;
+
+    /**
+     * Creates a new snapshot, observed now.
+     *
+     * @param workgroupJid the workgroup.
+     * @param available    true if the workgroup accepts requests.
+     */
+    public WorkgroupSnapshot(Jid workgroupJid, boolean available) {
+        this.workgroupJid = workgroupJid;
+        this.available = available;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the workgroup that this snapshot describes.
+     *
+     * @return the address of the workgroup.
+     */
+    public Jid getWorkgroupJid() {
+        return workgroupJid;
+    }
+
+    /**
+     * Returns true if the workgroup was accepting requests when this snapshot was taken.
+     *
+     * @return true if the workgroup is available.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Returns the time (in milliseconds) at which this snapshot was taken.
+     *
+     * @return the time at which the availability was observed.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return workgroupJid + (available ? " (available)" : " (unavailable)");
+    }
+}
@@ -14,63 +14,80 @@ package org.jivesoftware.webchat.actions;
 
 import org.jivesoftware.webchat.ChatManager;
 import org.jivesoftware.webchat.settings.ConnectionSettings;
-import org.jivesoftware.webchat.util.ModelUtil;
 import org.jivesoftware.webchat.util.WebLog;
 
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
-import org.jivesoftware.smack.StanzaCollector;
-import org.jivesoftware.smack.StanzaListener;
 import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
-import org.jivesoftware.smack.filter.AndFilter;
-import org.jivesoftware.smack.filter.FromMatchesFilter;
-import org.jivesoftware.smack.filter.StanzaFilter;
-import org.jivesoftware.smack.filter.StanzaTypeFilter;
 import org.jivesoftware.smack.packet.ExtensionElement;
 import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.packet.Presence;
 import org.jivesoftware.smack.packet.StandardExtensionElement;
-import org.jivesoftware.smack.packet.Stanza;
-import org.jivesoftware.smackx.disco.ServiceDiscoveryManager;
-import org.jivesoftware.smackx.disco.packet.DiscoverItems;
 import org.jivesoftware.smackx.workgroup.user.Workgroup;
 import org.jivesoftware.smackx.xdata.Form;
+import org.jxmpp.jid.BareJid;
 import org.jxmpp.jid.Jid;
 import org.jxmpp.jid.impl.JidCreate;
 import org.jxmpp.jid.parts.Resourcepart;
 import org.jxmpp.stringprep.XmppStringprepException;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Collection;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Checks availability of Workgroups and Agents. Use WorkgroupStatus if you wish
  * to discover the presence of a workgroup or an agent within the Workgroup.
+ * <p>
+ * The state that is kept per workgroup is updated from Smack listener threads, and read by
+ * every request for a status image. All of it is therefor kept in concurrent maps. The
+ * availability of a workgroup is published as an immutable {@link WorkgroupSnapshot}.
  */
 public final class WorkgroupStatus {
-    public static final Map<String , String> CHANGE_MAP = new HashMap<>();
+    /**
+     * The last modification date (in milliseconds since the epoch) of the configuration of each
+     * workgroup, keyed by the name of the workgroup.
+     */
+    public static final Map<String , Long> CHANGE_MAP = new ConcurrentHashMap<>();
+
+    private static final String WORKGROUP_ELEMENT = "workgroup";
+    private static final String WORKGROUP_NAMESPACE = "http://jivesoftware.com/protocol/workgroup";
+
+    // The format of the lastModified attribute, which is in UTC. Formatters are thread safe.
+    private static final DateTimeFormatter LAST_MODIFIED_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HH:mm:ss");
+
+    // The unparsed lastModified attribute that was last received from each workgroup.
+    private static final ConcurrentMap<String, String> lastModifiedValues = new ConcurrentHashMap<>();
 
-    public static final Set<WorkgroupChangeListener> listeners = new HashSet<>();
+    public static final Set<WorkgroupChangeListener> listeners = new CopyOnWriteArraySet<>();
+
+    private static final Set<WorkgroupAvailabilityListener> availabilityListeners = new CopyOnWriteArraySet<>();
 
     // Stores the latest workgroup forms.
-    private static Map<Jid , Form> workgroupForms = new HashMap<>();
+    private static final ConcurrentMap<Jid , Form> workgroupForms = new ConcurrentHashMap<>();
+
+    // Counts the lookups of workgroup forms that were served from the cache, and those that were not.
+    private static final LongAdder formHitCount = new LongAdder();
+    private static final LongAdder formMissCount = new LongAdder();
 
     // Stores all the workgroups.
-    private static Map<Jid , Workgroup> workgroups = new HashMap<>();
+    private static final ConcurrentMap<Jid , Workgroup> workgroups = new ConcurrentHashMap<>();
 
-    private static Map<Jid, Presence> workgroupPresence = new HashMap<>();
+    // Caches the availability of agents.
+    private static final AgentPresenceCache agentPresenceCache = new AgentPresenceCache();
+
+    // Tracks the presence of all workgroups, using a single listener on the global connection.
+    private static final WorkgroupPresenceManager presenceManager = new WorkgroupPresenceManager(agentPresenceCache);
 
 
     /**
@@ -84,58 +101,80 @@ public final class WorkgroupStatus {
     public static void initStatusListener() {
         ChatManager chatManager = ChatManager.getInstance();
 
-        final StanzaListener presenceListener = new StanzaListener() {
-          @Override
-          public void processStanza(Stanza packet) {
-            if (packet instanceof Presence) {
-              Presence p = (Presence) packet;
-              WebLog.log("Presence packets : " + p.toXML().toString());
-              // TODO not completle clear
-              ExtensionElement ext = p.getExtension("workgroup", "http://jivesoftware.com/protocol/workgroup");
-              if (ext != null && ext instanceof StandardExtensionElement) {
-                String lastModified = ((StandardExtensionElement) ext).getAttributeValue("lastModified");
-                if (lastModified != null) {
-                  String workgroupName = p.getFrom().getLocalpartOrThrow().toString();
-                  String previousDate = (String) CHANGE_MAP.get(workgroupName);
-    
-                  final SimpleDateFormat UTC_FORMAT = new SimpleDateFormat("yyyyMMdd'T'HH:mm:ss");
-                  UTC_FORMAT.setTimeZone(TimeZone.getTimeZone("GMT+0"));
-    
-                  try {
-                    Date newDate = UTC_FORMAT.parse(lastModified);
-    
-                    if (ModelUtil.hasLength(previousDate)) {
-                      Date oldDate = UTC_FORMAT.parse(previousDate);
-                      if (newDate.getTime() > oldDate.getTime()) {
-                        CHANGE_MAP.put(workgroupName, lastModified);
-                        fireWorkgroupChanged(p.getFrom());
-                        workgroupForms.remove(p.getFrom());
-                      }
-                    } else {
-                      CHANGE_MAP.put(workgroupName, lastModified);
-                    }
-                  } catch (ParseException e) {
-                    WebLog.logError("Error processing workgroup packet.", e);
-                  }
-    
-                }
-              }
-            }
-          }
-        };
-
         if (chatManager.getGlobalConnection() == null || !chatManager.getGlobalConnection().isConnected()) {
             ConnectionSettings settings = chatManager.getChatSettingsManager().getSettings();
             WebLog.logError("A connection to the server could not be made when attempting connection to " + settings.getServerDomain());
         }
         else {
-            chatManager.getGlobalConnection().addAsyncStanzaListener(presenceListener, new StanzaTypeFilter(Presence.class));
+            // Moves the presence listener to the new connection, instead of adding another one.
+            presenceManager.attach(chatManager.getGlobalConnection());
             workgroups.clear();
             workgroupForms.clear();
-            workgroupPresence.clear();
+            WorkgroupDirectory.getInstance().refreshSoon(0);
+        }
+    }
+
+    /**
+     * Processes the workgroup extension of a presence stanza, which announces changes to the
+     * configuration of a workgroup. Invoked by the presence listener for every presence stanza,
+     * so the common cases (no extension, or an unchanged modification date) do not parse or
+     * allocate anything.
+     *
+     * @param p the presence stanza.
+     */
+    public static void processWorkgroupPresence(Presence p) {
+        if (WebLog.isDebugEnabled()) {
+            WebLog.debug("Presence packets : " + p.toXML().toString());
+        }
+        // TODO not completle clear
+        ExtensionElement ext = p.getExtension(WORKGROUP_ELEMENT, WORKGROUP_NAMESPACE);
+        if (ext instanceof StandardExtensionElement) {
+            String lastModified = ((StandardExtensionElement) ext).getAttributeValue("lastModified");
+            if (lastModified != null) {
+                String workgroupName = p.getFrom().getLocalpartOrThrow().toString();
+
+                // Workgroups repeat the same date in every presence they send.
+                if (lastModified.equals(lastModifiedValues.get(workgroupName))) {
+                    return;
+                }
+
+                try {
+                    long newDate = LocalDateTime.parse(lastModified, LAST_MODIFIED_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+                    Long previousDate = CHANGE_MAP.get(workgroupName);
+
+                    if (previousDate != null) {
+                        // Only the thread that replaces the previous value notifies the listeners.
+                        if (newDate > previousDate && CHANGE_MAP.replace(workgroupName, previousDate, newDate)) {
+                            workgroupForms.remove(p.getFrom());
+                            fireWorkgroupChanged(p.getFrom());
+                        }
+                    } else {
+                        CHANGE_MAP.putIfAbsent(workgroupName, newDate);
+                    }
+                    lastModifiedValues.put(workgroupName, lastModified);
+                } catch (DateTimeParseException e) {
+                    WebLog.logError("Error processing workgroup packet.", e);
+                }
+            }
         }
     }
 
+    /**
+     * Returns the last modification date of the configuration of a workgroup, as announced in
+     * its presence. This can be used as the version of data that is derived from the
+     * configuration.
+     *
+     * @param workgroupJid the workgroup.
+     * @return the last modification date (in milliseconds), or 0 if it is not known.
+     */
+    public static long getLastModified(Jid workgroupJid) {
+        if (workgroupJid == null || workgroupJid.getLocalpartOrNull() == null) {
+            return 0;
+        }
+        final Long lastModified = CHANGE_MAP.get(workgroupJid.getLocalpartOrNull().toString());
+        return lastModified != null ? lastModified : 0;
+    }
+
     /**
      * Adds a WorkgroupChangeListener. WorkgroupChangeListener is used to allow notification of workgroup
      * updates.
@@ -152,14 +191,49 @@ public final class WorkgroupStatus {
      * @param jid the name of the workgroup that has been updated.
      */
     public static void fireWorkgroupChanged(Jid jid) {
-        Iterator<WorkgroupChangeListener> iter = new HashSet<>(listeners).iterator();
-        while (iter.hasNext()) {
-            iter.next().workgroupUpdated(jid);
+        for (WorkgroupChangeListener listener : listeners) {
+            listener.workgroupUpdated(jid);
         }
     }
 
     /**
-     * Checks the availability of the workgroupJid.
+     * Adds a WorkgroupAvailabilityListener, which is notified when a workgroup goes online or offline.
+     *
+     * @param listener the WorkgroupAvailabilityListener to add.
+     */
+    public static void addAvailabilityListener(WorkgroupAvailabilityListener listener) {
+        availabilityListeners.add(listener);
+    }
+
+    /**
+     * Removes a WorkgroupAvailabilityListener.
+     *
+     * @param listener the WorkgroupAvailabilityListener to remove.
+     */
+    public static void removeAvailabilityListener(WorkgroupAvailabilityListener listener) {
+        availabilityListeners.remove(listener);
+    }
+
+    /**
+     * Notify the WorkgroupAvailabilityListeners that a workgroup went online or offline.
+     *
+     * @param snapshot the new availability of the workgroup.
+     */
+    static void fireAvailabilityChanged(WorkgroupSnapshot snapshot) {
+        for (WorkgroupAvailabilityListener listener : availabilityListeners) {
+            try {
+                listener.availabilityChanged(snapshot);
+            }
+            catch (RuntimeException e) {
+                WebLog.logError("Error notifying availability listener.", e);
+            }
+        }
+    }
+
+    /**
+     * Checks the availability of the workgroupJid. The last known availability is used if there is one. Otherwise
+     * the server is only asked about workgroups that are listed by the {@link WorkgroupDirectory}, as the name can
+     * come from a request; other workgroups are reported as unavailable, and leave no state behind.
      *
      * @param workgroupName the workgroupJid to check for availability.
      * @return true if the workgroupJid is available to accept requests, otherwise returns false.
@@ -179,43 +253,89 @@ public final class WorkgroupStatus {
             WebLog.logError("Workgroup not specified or invalid: \"" + workgroupJid + "\"");
             return false;
         }
-        ChatManager chatManager = ChatManager.getInstance();
-        XMPPConnection globalConnection = chatManager.getGlobalConnection();
+        WorkgroupSnapshot snapshot = presenceManager.get(workgroupJid);
+        if (snapshot != null) {
+            return snapshot.isAvailable();
+        }
+        if (!WorkgroupDirectory.getInstance().contains(workgroupJid)) {
+            return false;
+        }
 
-        Presence presence = workgroupPresence.get(workgroupJid);
-        if (presence == null) {
-            Workgroup workgroup  = getWorkgroup(workgroupJid);
-            boolean isAvailable = false;
-            try {
-              isAvailable = workgroup.isAvailable();
-            } catch (NoResponseException | XMPPErrorException | NotConnectedException | InterruptedException e) {
-              WebLog.logError("Workgroup is not available: \"" + workgroupJid + "\" : " + e.getMessage());
-              
-            }
-            presence = new Presence(isAvailable ? Presence.Type.available : Presence.Type.unavailable);
-            workgroupPresence.put(workgroupJid, presence);
-
-            // Otherwise
-            StanzaFilter fromFilter = FromMatchesFilter.create(workgroupJid);
-            StanzaFilter presenceFilter = new StanzaTypeFilter(Presence.class);
-            StanzaFilter andFilter = new AndFilter(fromFilter, presenceFilter);
-
-            globalConnection.addAsyncStanzaListener(new StanzaListener() {
-                public void processStanza(Stanza packet) {
-                    Presence presence = (Presence)packet;
-                    workgroupPresence.put(workgroupJid, presence);
-                }
-            }, andFilter);
+        // Subscribe before asking, so that no presence update sent in between gets lost.
+        presenceManager.subscribe(workgroupJid);
+
+        Workgroup workgroup  = getWorkgroup(workgroupJid);
+        boolean isAvailable = false;
+        try {
+          isAvailable = workgroup.isAvailable();
+        } catch (NoResponseException | XMPPErrorException | NotConnectedException | InterruptedException e) {
+          WebLog.logError("Workgroup is not available: \"" + workgroupJid + "\" : " + e.getMessage());
 
-            return isAvailable;
         }
 
+        // A presence update that was received in the mean time is more recent than our answer.
+        return presenceManager.putIfAbsent(new WorkgroupSnapshot(workgroupJid, isAvailable)).isAvailable();
+    }
 
-        return presence != null && presence.getType() == Presence.Type.available;
+    /**
+     * Starts tracking the presence of a workgroup that is listed by the {@link WorkgroupDirectory}, without querying
+     * its availability. Once it sends a presence, its availability is known, and changes are passed to the
+     * availability listeners. Workgroups that are not listed are not tracked, so that addresses passed in requests
+     * leave no state behind.
+     *
+     * @param workgroupJid the workgroup.
+     * @return true if the workgroup is tracked.
+     */
+    public static boolean track(Jid workgroupJid) {
+        if (presenceManager.get(workgroupJid) == null && !WorkgroupDirectory.getInstance().contains(workgroupJid)) {
+            return false;
+        }
+        presenceManager.subscribe(workgroupJid);
+        return true;
     }
 
     /**
-     * Checks the availability of the specified agent.
+     * Returns the last known availability of a workgroup, without querying the server.
+     *
+     * @param workgroupJid the workgroup.
+     * @return the availability of the workgroup, or null if it has not been queried before.
+     */
+    public static WorkgroupSnapshot getSnapshot(Jid workgroupJid) {
+        return presenceManager.get(workgroupJid);
+    }
+
+    /**
+     * Returns the last known availability of all workgroups that have been queried. The returned
+     * map is an immutable copy, that is not affected by later updates.
+     *
+     * @return the availability of all known workgroups.
+     */
+    public static Map<Jid, WorkgroupSnapshot> getSnapshots() {
+        return presenceManager.getAll();
+    }
+
+    /**
+     * Returns the number of presence listeners that are registered on the global connection,
+     * which should never exceed one.
+     *
+     * @return the number of registered presence listeners.
+     */
+    public static int getPresenceListenerCount() {
+        return presenceManager.getRegisteredListenerCount();
+    }
+
+    /**
+     * Returns the number of workgroups of which presence updates are tracked.
+     *
+     * @return the number of tracked workgroups.
+     */
+    public static int getPresenceSubscriptionCount() {
+        return presenceManager.getSubscriptionCount();
+    }
+
+    /**
+     * Checks the availability of the specified agent. Recent answers are cached, and concurrent
+     * checks of the same agent share a single request.
      *
      * @param agentName the jid of the agent to check.
      * @return true if the agent is available to accept a request.
@@ -225,34 +345,23 @@ public final class WorkgroupStatus {
         XMPPConnection globalConnection = chatManager.getGlobalConnection();
 
         try {
-          Jid agentJID = JidCreate.from(agentName);
-          Presence directedPresence = new Presence(Presence.Type.available);
-          //TODO directedPresence.setProperty("anonymous", true);
-          directedPresence.setTo(agentJID);
-          StanzaFilter typeFilter = new StanzaTypeFilter(Presence.class);
-          StanzaFilter fromFilter = FromMatchesFilter.create(agentJID);
-          StanzaCollector collector = globalConnection.createStanzaCollector(new AndFilter(fromFilter,
-                  typeFilter));
-
-          globalConnection.sendStanza(directedPresence);
-
-          Presence response = (Presence)collector.nextResult(globalConnection.getReplyTimeout());
-
-          // Cancel the collector.
-          collector.cancel();
-          if (response == null) {
-              return false;
-          }
-          if (response.getError() != null) {
-              return false;
-          }
-          return Presence.Type.available == response.getType();
+          BareJid agentJID = JidCreate.bareFrom(agentName);
+          return agentPresenceCache.isAvailable(globalConnection, agentJID);
         } catch (NotConnectedException | InterruptedException | XmppStringprepException e) {
           WebLog.logError("Agent is not available: \"" + agentName + "\" : " + e.getMessage());
           return false;
         }
     }
 
+    /**
+     * Returns the cache of agent availability, which exposes lookup statistics.
+     *
+     * @return the cache of agent availability.
+     */
+    public static AgentPresenceCache getAgentPresenceCache() {
+        return agentPresenceCache;
+    }
+
     /**
      * Returns the nickname of the user who sent the message.
      *
@@ -263,36 +372,15 @@ public final class WorkgroupStatus {
         return message.getFrom().getResourceOrNull();
     }
 
+    /**
+     * Returns the names of all workgroups. The names are retrieved in the background, this
+     * method never waits for the server.
+     *
+     * @return the names of all workgroups.
+     * @see WorkgroupDirectory
+     */
     public static Collection<String> getWorkgroupNames() {
-        final List<String> workgroupNames = new ArrayList<>();
-
-        ChatManager chatManager = ChatManager.getInstance();
-        ConnectionSettings connectionSettings = chatManager.getChatSettingsManager().getSettings();
-        if (connectionSettings == null) {
-            return workgroupNames;
-        }
-        String host = connectionSettings.getServerDomain();
-        XMPPConnection con = chatManager.getGlobalConnection();
-        if (con == null) {
-            return workgroupNames;
-        }
-        ServiceDiscoveryManager discoManager = ServiceDiscoveryManager.getInstanceFor(con);
-        DiscoverItems result = null;
-        try {
-          Jid jid = JidCreate.from("workgroup." + host);
-          
-            result = discoManager.discoverItems(jid);
-        }
-        catch (XMPPException | NoResponseException | NotConnectedException | InterruptedException | XmppStringprepException e) {
-          //TODO better throw exception
-            return workgroupNames;
-        }
-        
-        for (DiscoverItems.Item item : result.getItems()) {
-            String workgroupName = item.getName();
-            workgroupNames.add(workgroupName);
-        }
-        return workgroupNames;
+        return WorkgroupDirectory.getInstance().getWorkgroupNames();
     }
 
     public static String getHost() {
@@ -305,11 +393,20 @@ public final class WorkgroupStatus {
     }
 
     public static Form getWorkgroupForm(Jid workgroupJid) throws NoResponseException, NotConnectedException, InterruptedException {
-        Form form = (Form)workgroupForms.get(workgroupJid);
-        if (form == null) {
+        Form form = workgroupForms.get(workgroupJid);
+        if (form != null) {
+            formHitCount.increment();
+        }
+        else {
+            formMissCount.increment();
             try {
                 form = getWorkgroup(workgroupJid).getWorkgroupForm();
-                workgroupForms.put(workgroupJid, form);
+                if (form != null) {
+                    final Form existing = workgroupForms.putIfAbsent(workgroupJid, form);
+                    if (existing != null) {
+                        form = existing;
+                    }
+                }
             }
             catch (XMPPException e) {
                 e.printStackTrace();
@@ -318,11 +415,50 @@ public final class WorkgroupStatus {
         return form;
     }
 
+    /**
+     * Returns the number of workgroups of which the form is cached.
+     *
+     * @return the number of cached workgroup forms.
+     */
+    public static int getWorkgroupFormCount() {
+        return workgroupForms.size();
+    }
+
+    /**
+     * Returns the number of times that a cached workgroup form was used.
+     *
+     * @return the number of cache hits.
+     */
+    public static long getWorkgroupFormHitCount() {
+        return formHitCount.sum();
+    }
+
+    /**
+     * Returns the number of times that a workgroup form had to be retrieved before it could be used.
+     *
+     * @return the number of cache misses.
+     */
+    public static long getWorkgroupFormMissCount() {
+        return formMissCount.sum();
+    }
+
+    /**
+     * Returns the number of workgroups that an object has been created for.
+     *
+     * @return the number of cached workgroups.
+     */
+    public static int getWorkgroupCount() {
+        return workgroups.size();
+    }
+
     public static Workgroup getWorkgroup(Jid workgroupJid) {
-        Workgroup workgroup = (Workgroup)workgroups.get(workgroupJid);
+        Workgroup workgroup = workgroups.get(workgroupJid);
         if (workgroup == null) {
             workgroup = new Workgroup(workgroupJid, ChatManager.getInstance().getGlobalConnection());
-            workgroups.put(workgroupJid, workgroup);
+            final Workgroup existing = workgroups.putIfAbsent(workgroupJid, workgroup);
+            if (existing != null) {
+                workgroup = existing;
+            }
         }
 
         return workgroup;
@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.events;
+
+import org.jivesoftware.webchat.actions.WorkgroupAvailabilityListener;
+import org.jivesoftware.webchat.actions.WorkgroupSnapshot;
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.util.StringUtils;
+import org.jivesoftware.webchat.util.WebLog;
+
+import org.jxmpp.jid.Jid;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broadcasts changes in the availability of workgroups to all connected browsers, as server-sent events. Every
+ * change is serialized once, after which the same bytes are handed to each subscriber that is interested in the
+ * workgroup. This is done by a single dispatcher thread, so that the thread that processes presences is never held
+ * up. Subscribers write without blocking, and are disconnected when they fall behind (see
+ * {@link AvailabilitySubscriber}), so one slow browser does not delay the others. At most {@link #QUEUE_SIZE}
+ * events wait for the dispatcher; further events are dropped.
+ * <p>
+ * Subscribers that do not receive an event for a while are sent a comment, which keeps proxies from closing the
+ * connection, and detects browsers that have gone away.
+ */
+public final class AvailabilityEventBus implements WorkgroupAvailabilityListener {
+
+    /**
+     * The number of milliseconds between two heartbeats.
+     */
+    public static final long HEARTBEAT_INTERVAL = 20 * 1000;
+
+    /**
+     * The maximum number of events that wait to be dispatched.
+     */
+    public static final int QUEUE_SIZE = 1000;
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static AvailabilityEventBus singleton;
+    private static final Object LOCK = new Object();
+
+    private final Set<AvailabilitySubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher;
+    private final Timer heartbeat;
+
+    /**
+     * Returns the singleton instance of <CODE>AvailabilityEventBus</CODE>, creating it if necessary.
+     *
+     * @return the singleton instance of <Code>AvailabilityEventBus</CODE>
+     */
+    public static AvailabilityEventBus getInstance() {
+        synchronized (LOCK) {
+            if (singleton == null) {
+                singleton = new AvailabilityEventBus();
+            }
+            return singleton;
+        }
+    }
+
+    private AvailabilityEventBus() {
+        dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Availability events");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+        heartbeat = new Timer("Availability event heartbeat", true);
+        heartbeat.schedule(new TimerTask() {
+            public void run() {
+                broadcast(null, HEARTBEAT);
+            }
+        }, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL);
+
+        WorkgroupStatus.addAvailabilityListener(this);
+    }
+
+    /**
+     * Stops dispatching events, and disconnects all subscribers. This is invoked when the web application is
+     * shut down.
+     */
+    public static void shutdown() {
+        synchronized (LOCK) {
+            if (singleton == null) {
+                return;
+            }
+            WorkgroupStatus.removeAvailabilityListener(singleton);
+            singleton.heartbeat.cancel();
+            singleton.dispatcher.shutdownNow();
+            for (AvailabilitySubscriber subscriber : singleton.subscribers) {
+                subscriber.close();
+            }
+            singleton.subscribers.clear();
+            singleton = null;
+        }
+    }
+
+    public void availabilityChanged(WorkgroupSnapshot snapshot) {
+        broadcast(snapshot.getWorkgroupJid(), toEvent(snapshot));
+    }
+
+    /**
+     * Adds a subscriber, which will receive all subsequent events for the workgroups it is interested in.
+     *
+     * @param subscriber the subscriber.
+     */
+    void subscribe(AvailabilitySubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Removes a subscriber.
+     *
+     * @param subscriber the subscriber.
+     */
+    void unsubscribe(AvailabilitySubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Returns the number of browsers that are currently connected.
+     *
+     * @return the number of subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Serializes the availability of a workgroup as a server-sent event.
+     *
+     * @param snapshot the availability of the workgroup.
+     * @return the UTF-8 encoded event.
+     */
+    static byte[] toEvent(WorkgroupSnapshot snapshot) {
+        final StringBuilder event = new StringBuilder(128);
+        event.append("event: availability\n");
+        event.append("data: {\"workgroup\":\"").append(StringUtils.escapeForJSON(snapshot.getWorkgroupJid().toString()));
+        event.append("\",\"available\":").append(snapshot.isAvailable());
+        event.append(",\"timestamp\":").append(snapshot.getTimestamp()).append("}\n\n");
+        return event.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an event to all subscribers that are interested in a workgroup.
+     *
+     * @param workgroupJid the workgroup, or null to write to all subscribers.
+     * @param event        the serialized event.
+     */
+    private void broadcast(final Jid workgroupJid, final byte[] event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            dispatcher.execute(new Runnable() {
+                public void run() {
+                    for (AvailabilitySubscriber subscriber : subscribers) {
+                        if (workgroupJid != null && !subscriber.isInterestedIn(workgroupJid)) {
+                            continue;
+                        }
+                        try {
+                            subscriber.send(event);
+                        }
+                        catch (IOException | RuntimeException e) {
+                            // The browser has gone away, or does not keep up.
+                            subscribers.remove(subscriber);
+                            subscriber.close();
+                        }
+                    }
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            if (dispatcher.isShutdown()) {
+                WebLog.log("Availability event not dispatched, as the event bus has been shut down.");
+            }
+            else {
+                WebLog.logError("Availability event dropped, as " + QUEUE_SIZE + " events are waiting to be dispatched.");
+            }
+        }
+    }
+}
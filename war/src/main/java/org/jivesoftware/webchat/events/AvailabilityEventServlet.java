@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.events;
+
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.actions.WorkgroupSnapshot;
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.util.ModelUtil;
+
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.stringprep.XmppStringprepException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Streams changes in the availability of workgroups to a browser, as server-sent events. Pages can use this to
+ * update their "chat now" buttons as soon as a workgroup goes online or offline, instead of polling:
+ * <pre>
+ * var source = new EventSource("events?workgroup=sales@workgroup.example.org");
+ * source.addEventListener("availability", function(e) { var status = JSON.parse(e.data); ... });
+ * </pre>
+ * The last known availability of every requested workgroup is sent right after connecting. If no workgroup is
+ * specified, the events of all workgroups are streamed (but no initial state is sent).
+ * <p>
+ * Connecting never queries the server. Workgroups that are not listed by the
+ * {@link org.jivesoftware.webchat.actions.WorkgroupDirectory} (and of which no availability is known) are left out.
+ */
+public class AvailabilityEventServlet extends HttpServlet {
+    private static final String WORKGROUP = "workgroup";
+
+    /**
+     * The maximum number of workgroups that a browser can subscribe to.
+     */
+    private static final int MAX_WORKGROUPS = 100;
+
+    /**
+     * The number of milliseconds after which a connection is ended. Browsers reconnect automatically.
+     */
+    private static final long TIMEOUT = 10 * 60 * 1000;
+
+    /**
+     * Tells browsers to wait five seconds before reconnecting.
+     */
+    private static final byte[] RETRY = "retry: 5000\n\n".getBytes(StandardCharsets.UTF_8);
+
+    public void destroy() {
+        AvailabilityEventBus.shutdown();
+        super.destroy();
+    }
+
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (!ChatManager.getInstance().isConnected() || !request.isAsyncSupported()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        final Set<Jid> workgroups = new HashSet<>();
+        final String[] parameters = request.getParameterValues(WORKGROUP);
+        if (parameters != null) {
+            for (String parameter : parameters) {
+                for (String workgroupName : parameter.split(",")) {
+                    if (!ModelUtil.hasLength(workgroupName.trim())) {
+                        continue;
+                    }
+                    try {
+                        workgroups.add(JidCreate.bareFrom(workgroupName.trim()));
+                    }
+                    catch (XmppStringprepException e) {
+                        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid workgroup: " + workgroupName);
+                        return;
+                    }
+                }
+            }
+        }
+        if (workgroups.size() > MAX_WORKGROUPS) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No more than " + MAX_WORKGROUPS + " workgroups can be requested at once.");
+            return;
+        }
+
+        // Makes sure that the presence of every workgroup is tracked, which is what produces events. Workgroups
+        // that are not known are left out, rather than tracked.
+        final Set<Jid> subscribed = workgroups.isEmpty() ? null : new HashSet<Jid>();
+        for (Jid workgroupJid : workgroups) {
+            if (WorkgroupStatus.track(workgroupJid)) {
+                subscribed.add(workgroupJid);
+            }
+        }
+
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Access-Control-Allow-Origin", "*");
+
+        final AsyncContext context = request.startAsync();
+        context.setTimeout(TIMEOUT);
+
+        final AvailabilityEventBus eventBus = AvailabilityEventBus.getInstance();
+        final AvailabilitySubscriber subscriber;
+        try {
+            subscriber = new AvailabilitySubscriber(context, subscribed);
+        }
+        catch (IOException | IllegalStateException e) {
+            context.complete();
+            return;
+        }
+        context.addListener(new AsyncListener() {
+            public void onComplete(AsyncEvent event) {
+                eventBus.unsubscribe(subscriber);
+            }
+
+            public void onTimeout(AsyncEvent event) {
+                eventBus.unsubscribe(subscriber);
+                subscriber.close();
+            }
+
+            public void onError(AsyncEvent event) {
+                eventBus.unsubscribe(subscriber);
+                subscriber.close();
+            }
+
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        // Subscribe first, so that no change between sending the initial state and subscribing gets lost.
+        eventBus.subscribe(subscriber);
+        try {
+            subscriber.send(RETRY);
+            if (subscribed != null) {
+                for (Jid workgroupJid : subscribed) {
+                    final WorkgroupSnapshot snapshot = WorkgroupStatus.getSnapshot(workgroupJid);
+                    if (snapshot != null) {
+                        subscriber.send(AvailabilityEventBus.toEvent(snapshot));
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            eventBus.unsubscribe(subscriber);
+            subscriber.close();
+        }
+    }
+}
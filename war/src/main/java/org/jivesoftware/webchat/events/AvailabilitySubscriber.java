@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.events;
+
+import org.jxmpp.jid.Jid;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * A browser that is connected to the {@link AvailabilityEventServlet}, waiting for events.
+ * <p>
+ * Events are written with non-blocking output: they are queued, and written whenever the connection can take more.
+ * A browser that does not keep up (because it has stopped reading, for instance) therefore never holds up the
+ * thread that sends events. Once {@link #MAX_PENDING} events are waiting, or events have been waiting for
+ * {@link #WRITE_TIMEOUT} milliseconds without any of them being written, the browser is considered gone, and
+ * {@link #send(byte[])} fails.
+ */
+final class AvailabilitySubscriber {
+
+    /**
+     * The maximum number of events that wait to be written.
+     */
+    static final int MAX_PENDING = 32;
+
+    /**
+     * The number of milliseconds after which a browser that takes no waiting events is considered gone.
+     */
+    static final long WRITE_TIMEOUT = 10 * 1000;
+
+    private final AsyncContext context;
+    private final Set<Jid> workgroups;
+    private final ServletOutputStream out;
+    private final Deque<byte[]> pending = new ArrayDeque<>();
+
+    /**
+     * The time since which events have been waiting without any of them being written, or 0 if none are waiting.
+     */
+    private long pendingSince;
+
+    private boolean closed;
+
+    /**
+     * Creates a subscriber, and switches the response to non-blocking output. The request must be in asynchronous
+     * mode.
+     *
+     * @param context    the asynchronous request of the browser.
+     * @param workgroups the (bare) addresses of the workgroups that the browser is interested in, or null to
+     *                   receive events for all workgroups.
+     * @throws IOException if the response can not be written to.
+     */
+    AvailabilitySubscriber(AsyncContext context, Set<Jid> workgroups) throws IOException {
+        this.context = context;
+        this.workgroups = workgroups;
+        this.out = context.getResponse().getOutputStream();
+        out.setWriteListener(new WriteListener() {
+            public void onWritePossible() throws IOException {
+                write();
+            }
+
+            public void onError(Throwable throwable) {
+                close();
+            }
+        });
+    }
+
+    boolean isInterestedIn(Jid workgroupJid) {
+        return workgroups == null || workgroups.contains(workgroupJid.asBareJid());
+    }
+
+    /**
+     * Queues an event, and writes as many waiting events as the connection can take without blocking.
+     *
+     * @param event the serialized event.
+     * @throws IOException if the browser has gone away, or does not keep up.
+     */
+    synchronized void send(byte[] event) throws IOException {
+        if (closed) {
+            throw new IOException("Subscriber is closed.");
+        }
+        if (pending.size() >= MAX_PENDING
+            || (pendingSince != 0 && System.currentTimeMillis() - pendingSince > WRITE_TIMEOUT)) {
+            throw new IOException("Subscriber does not keep up.");
+        }
+        if (pending.isEmpty()) {
+            pendingSince = System.currentTimeMillis();
+        }
+        pending.add(event);
+        write();
+    }
+
+    /**
+     * Writes waiting events until none are left, or the connection can not take more. In the latter case the
+     * container invokes this again once it can.
+     */
+    private synchronized void write() throws IOException {
+        if (closed) {
+            return;
+        }
+        while (!pending.isEmpty() && out.isReady()) {
+            out.write(pending.poll());
+            pendingSince = pending.isEmpty() ? 0 : System.currentTimeMillis();
+        }
+        if (pending.isEmpty() && out.isReady()) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Ends the response to the browser. Closing a subscriber more than once has no effect.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.clear();
+        try {
+            context.complete();
+        }
+        catch (IllegalStateException e) {
+            // The request has already been completed by the container.
+        }
+    }
+}
@@ -19,16 +19,29 @@ package org.jivesoftware.webchat.history;
 public class Line {
     private String from;
     private String text;
+    private long timestamp;
 
     /**
-     * Creates a new line within a chat transcript.
+     * Creates a new line within a chat transcript, sent now.
      * @param from the nickname of the user who sent the message, or null if
      * it's a presence update.
      * @param text the body of the message.
      */
     public Line(String from, String text) {
+        this(from, text, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a new line within a chat transcript.
+     * @param from the nickname of the user who sent the message, or null if
+     * it's a presence update.
+     * @param text the body of the message.
+     * @param timestamp when the message was sent, in milliseconds since the epoch.
+     */
+    public Line(String from, String text, long timestamp) {
         this.from = from;
         this.text = text;
+        this.timestamp = timestamp;
     }
 
     /**
@@ -46,4 +59,12 @@ public class Line {
     public String getText() {
         return text;
     }
+
+    /**
+     * Returns when the message was sent.
+     * @return when the message was sent, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
 }
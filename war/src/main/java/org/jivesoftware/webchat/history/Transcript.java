@@ -12,36 +12,405 @@
 
 package org.jivesoftware.webchat.history;
 
+import org.jivesoftware.webchat.SessionLimits;
+import org.jivesoftware.webchat.util.WebLog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A Transcript is a list of Line objects - each Line contains a from and message text.
+ * <p>
+ * Lines are not kept as objects, but encoded in a byte array: the index of the sender in a table of the senders of
+ * this transcript, the time the line was sent (relative to the first line), and the UTF-8 encoded text. Lines are
+ * only decoded when the transcript is read.
+ * <p>
+ * Once the encoded lines take up more than the configured number of bytes, the oldest of them are moved to the
+ * {@link TranscriptStore}, and read back from there when the transcript is shown. The lines that have been moved
+ * are released by {@link #release()}, once the transcript is not needed anymore.
  */
 final public class Transcript {
 
-    private List<Line> transcript;
+    /**
+     * The number of bytes retained for every line on the heap, on top of its encoded form (its offset).
+     */
+    private static final int LINE_OVERHEAD = 4;
+
+    /**
+     * The encoded lines that are kept on the heap, from index <tt>dataStart</tt> up to <tt>dataEnd</tt>.
+     */
+    private byte[] data = new byte[0];
+    private int dataStart;
+    private int dataEnd;
+
+    /**
+     * The offsets (in <tt>data</tt>) of the lines that are kept on the heap, from index <tt>lineStart</tt> up to
+     * <tt>lineEnd</tt>.
+     */
+    private int[] offsets = new int[0];
+    private int lineStart;
+    private int lineEnd;
+
+    /**
+     * The addresses (in the transcript store) of the oldest lines of this transcript, from index
+     * <tt>storedStart</tt> up to <tt>storedEnd</tt>.
+     */
+    private long[] storedLines = new long[0];
+    private int storedStart;
+    private int storedEnd;
+
+    /**
+     * The senders of the lines of this transcript. Lines refer to their sender by its index in this table.
+     */
+    private final List<String> speakers = new ArrayList<>();
+    private final Map<String, Integer> speakerIndexes = new HashMap<>();
+
+    /**
+     * The time the first line was sent. The times of all lines are encoded relative to this one.
+     */
+    private long baseTimestamp = Long.MIN_VALUE;
+
+    /**
+     * The maximum number of bytes that the lines on the heap can retain.
+     */
+    private final long maxHeapSize;
+
+    /**
+     * The estimated number of bytes of all lines of this transcript, when they would be kept as strings. The limits
+     * of a session are expressed in this size.
+     */
+    private long size;
 
     /**
-     * Empty Constructor
+     * The number of bytes retained by the lines on the heap.
+     */
+    private long heapSize;
+
+    /**
+     * Empty Constructor. All lines are kept on the heap.
      */
     public Transcript() {
-        transcript = new ArrayList<>();
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a transcript that moves its oldest lines to the transcript store once the lines on the heap take up
+     * more than the given number of bytes.
+     * @param maxHeapSize the maximum number of bytes retained by the lines on the heap.
+     */
+    public Transcript(long maxHeapSize) {
+        this.maxHeapSize = maxHeapSize;
     }
 
     /**
      * Adds a new Line to the Transcript.
      * @param line the line to add to the transcript.
      */
-    public void addLine(Line line) {
-        transcript.add(line);
+    public synchronized void addLine(Line line) {
+        final byte[] record = encode(line);
+        if (dataEnd + record.length > data.length) {
+            data = grow(record.length);
+        }
+        if (lineEnd == offsets.length) {
+            offsets = growOffsets();
+        }
+        System.arraycopy(record, 0, data, dataEnd, record.length);
+        offsets[lineEnd++] = dataEnd;
+        dataEnd += record.length;
+        size += sizeOf(line);
+        heapSize += record.length + LINE_OVERHEAD;
+
+        while (heapSize > maxHeapSize && lineEnd - lineStart > 1) {
+            final int offset = offsets[lineStart];
+            try {
+                store(TranscriptStore.getInstance().append(Arrays.copyOfRange(data, offset, recordEnd(lineStart))));
+            }
+            catch (IOException e) {
+                // Keep the line on the heap; the limits of the session still apply.
+                WebLog.logError("Unable to move transcript line to disk.", e);
+                break;
+            }
+            removeFirstRecord();
+        }
+    }
+
+    /**
+     * Removes the oldest Line from the Transcript.
+     * @return the removed line, or null if the transcript is empty.
+     */
+    public synchronized Line removeFirstLine() {
+        final Line line;
+        if (storedStart < storedEnd) {
+            final long address = storedLines[storedStart++];
+            line = decode(TranscriptStore.getInstance().read(address), 0);
+            TranscriptStore.getInstance().release(address);
+        }
+        else if (lineStart < lineEnd) {
+            line = decode(data, offsets[lineStart]);
+            removeFirstRecord();
+        }
+        else {
+            return null;
+        }
+        size -= sizeOf(line);
+        return line;
+    }
+
+    /**
+     * Releases the lines that have been moved to the transcript store. Those lines are no longer part of this
+     * transcript afterwards.
+     */
+    public synchronized void release() {
+        for (int i = storedStart; i < storedEnd; i++) {
+            TranscriptStore.getInstance().release(storedLines[i]);
+        }
+        storedLines = new long[0];
+        storedStart = 0;
+        storedEnd = 0;
+
+        size = 0;
+        for (int i = lineStart; i < lineEnd; i++) {
+            size += sizeOf(decode(data, offsets[i]));
+        }
+    }
+
+    /**
+     * Returns the estimated number of bytes of all lines of this Transcript (including the ones that have been
+     * moved to the transcript store), as if they were kept as strings.
+     * @return the size of this transcript, in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes retained by the encoded lines of this Transcript that are kept on the heap.
+     * @return the number of bytes retained on the heap.
+     */
+    public synchronized long getHeapSize() {
+        return heapSize;
+    }
+
+    /**
+     * Returns the number of lines in this Transcript.
+     * @return the number of lines.
+     */
+    public synchronized int getLineCount() {
+        return storedEnd - storedStart + lineEnd - lineStart;
     }
 
     /**
-     * Returns the current Chat Transcript.
+     * Returns the estimated number of bytes retained by a Line.
+     * @param line the line.
+     * @return the size of the line, in bytes.
+     */
+    public static long sizeOf(Line line) {
+        return SessionLimits.sizeOf(line.getFrom()) + SessionLimits.sizeOf(line.getText());
+    }
+
+    /**
+     * Returns the current Chat Transcript. The returned list is a read-only view on this transcript, which decodes
+     * every line when it is retrieved. Lines that are added or removed in the meantime shift the indexes of the view,
+     * so use {@link #getSnapshot()} to go through all lines while the transcript may change.
      * @return the current Chat Transcript.
      */
     public List<Line> getTranscript() {
-        return transcript;
+        return new AbstractList<Line>() {
+            public Line get(int index) {
+                synchronized (Transcript.this) {
+                    final int storedCount = storedEnd - storedStart;
+                    if (index < 0 || index >= storedCount + lineEnd - lineStart) {
+                        throw new IndexOutOfBoundsException("Index: " + index);
+                    }
+                    if (index < storedCount) {
+                        return decode(TranscriptStore.getInstance().read(storedLines[storedStart + index]), 0);
+                    }
+                    return decode(data, offsets[lineStart + index - storedCount]);
+                }
+            }
+
+            public int size() {
+                return getLineCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the lines of this Transcript as they are at the time of the call, unaffected by lines that are added or
+     * removed afterwards. The returned list holds a copy of the encoded lines (including the ones that have been moved
+     * to the transcript store), and decodes every line when it is retrieved.
+     * @return a read-only list of the lines of this transcript.
+     */
+    public synchronized List<Line> getSnapshot() {
+        final byte[][] stored = new byte[storedEnd - storedStart][];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = TranscriptStore.getInstance().read(storedLines[storedStart + i]);
+        }
+        final byte[] heapData = Arrays.copyOfRange(data, dataStart, dataEnd);
+        final int[] heapOffsets = new int[lineEnd - lineStart];
+        for (int i = 0; i < heapOffsets.length; i++) {
+            heapOffsets[i] = offsets[lineStart + i] - dataStart;
+        }
+        final List<String> senders = new ArrayList<>(speakers);
+        final long base = baseTimestamp;
+
+        return new AbstractList<Line>() {
+            public Line get(int index) {
+                if (index < stored.length) {
+                    return decode(stored[index], 0, senders, base);
+                }
+                return decode(heapData, heapOffsets[index - stored.length], senders, base);
+            }
+
+            public int size() {
+                return stored.length + heapOffsets.length;
+            }
+        };
+    }
+
+    /**
+     * Returns the offset at which the encoded line with the given index (in <tt>offsets</tt>) ends.
+     */
+    private int recordEnd(int line) {
+        return line + 1 < lineEnd ? offsets[line + 1] : dataEnd;
+    }
+
+    private void removeFirstRecord() {
+        final int end = recordEnd(lineStart);
+        heapSize -= end - offsets[lineStart] + LINE_OVERHEAD;
+        lineStart++;
+        dataStart = end;
+        if (lineStart == lineEnd) {
+            lineStart = lineEnd = 0;
+            dataStart = dataEnd = 0;
+        }
+    }
+
+    /**
+     * Makes room for a record of the given length, by reclaiming the room of removed lines, or by growing the data.
+     */
+    private byte[] grow(int length) {
+        final int used = dataEnd - dataStart;
+        final byte[] target = used + length <= data.length
+            ? data
+            : new byte[Math.max(used + length, Math.max(256, data.length + (data.length >> 1)))];
+        System.arraycopy(data, dataStart, target, 0, used);
+        for (int i = lineStart; i < lineEnd; i++) {
+            offsets[i] -= dataStart;
+        }
+        dataStart = 0;
+        dataEnd = used;
+        return target;
+    }
+
+    private int[] growOffsets() {
+        final int used = lineEnd - lineStart;
+        final int[] target = used < offsets.length
+            ? offsets
+            : new int[Math.max(16, offsets.length + (offsets.length >> 1))];
+        System.arraycopy(offsets, lineStart, target, 0, used);
+        lineStart = 0;
+        lineEnd = used;
+        return target;
+    }
+
+    private void store(long address) {
+        if (storedEnd == storedLines.length) {
+            if (storedStart > storedLines.length / 2) {
+                // Reuse the room of lines that have been removed.
+                System.arraycopy(storedLines, storedStart, storedLines, 0, storedEnd - storedStart);
+                storedEnd -= storedStart;
+                storedStart = 0;
+            }
+            else {
+                storedLines = Arrays.copyOf(storedLines, Math.max(16, storedLines.length * 2));
+            }
+        }
+        storedLines[storedEnd++] = address;
+    }
+
+    /**
+     * Encodes a line as three variable-length numbers (the index of the sender plus one, or 0 if there is none; the
+     * zigzag encoded time since the first line; the length of the text plus one, or 0 if there is none) followed by
+     * the UTF-8 encoded text.
+     */
+    private byte[] encode(Line line) {
+        int speaker = 0;
+        if (line.getFrom() != null) {
+            Integer index = speakerIndexes.get(line.getFrom());
+            if (index == null) {
+                index = speakers.size();
+                speakers.add(line.getFrom());
+                speakerIndexes.put(line.getFrom(), index);
+            }
+            speaker = index + 1;
+        }
+        if (baseTimestamp == Long.MIN_VALUE) {
+            baseTimestamp = line.getTimestamp();
+        }
+        final long delta = line.getTimestamp() - baseTimestamp;
+        final long time = (delta << 1) ^ (delta >> 63);
+        final byte[] text = line.getText() != null ? line.getText().getBytes(StandardCharsets.UTF_8) : null;
+        final long textLength = text != null ? text.length + 1 : 0;
+
+        final byte[] record = new byte[lengthOf(speaker) + lengthOf(time) + lengthOf(textLength) + (text != null ? text.length : 0)];
+        int position = write(record, 0, speaker);
+        position = write(record, position, time);
+        position = write(record, position, textLength);
+        if (text != null) {
+            System.arraycopy(text, 0, record, position, text.length);
+        }
+        return record;
+    }
+
+    private Line decode(byte[] record, int offset) {
+        return decode(record, offset, speakers, baseTimestamp);
+    }
+
+    private static Line decode(byte[] record, int offset, List<String> speakers, long baseTimestamp) {
+        final int[] position = {offset};
+        final int speaker = (int) read(record, position);
+        final long time = read(record, position);
+        final int textLength = (int) read(record, position);
+
+        final String from = speaker != 0 ? speakers.get(speaker - 1) : null;
+        final String text = textLength != 0 ? new String(record, position[0], textLength - 1, StandardCharsets.UTF_8) : null;
+        return new Line(from, text, baseTimestamp + ((time >>> 1) ^ -(time & 1)));
+    }
+
+    private static int lengthOf(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int write(byte[] target, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    private static long read(byte[] source, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = source[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
     }
 }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.history;
+
+import org.jivesoftware.webchat.util.ModelUtil;
+import org.jivesoftware.webchat.util.StringUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes a {@link Transcript} to a writer, one line at a time. Lines are decoded, rewritten and written as they are
+ * read from a copy of the encoded transcript, so that no more than one line is decoded at a time, and the first part
+ * of the transcript can be sent before the rest of it has been decoded. The writer is flushed every
+ * {@link #FLUSH_INTERVAL} lines.
+ * <p>
+ * The text of a line is kept as filtered HTML (see {@link org.jivesoftware.webchat.util.WebUtils#applyFilters(String)}),
+ * which is written as-is by {@link #writeHTML(Transcript, Writer)}.
+ */
+public final class TranscriptRenderer {
+
+    /**
+     * The number of lines after which the writer is flushed.
+     */
+    public static final int FLUSH_INTERVAL = 256;
+
+    private static final String SOURCE_ATTRIBUTE = "src=\"";
+
+    private final String baseURL;
+
+    /**
+     * Creates a renderer that writes the images of a transcript (such as emoticons) with relative addresses.
+     */
+    public TranscriptRenderer() {
+        this(null);
+    }
+
+    /**
+     * Creates a renderer that prefixes the relative addresses of the images of a transcript with a base URL, so that
+     * they can be shown outside of the web application (in a print window, for instance).
+     *
+     * @param baseURL the URL of the web application, without a trailing slash, or null to leave addresses as is.
+     */
+    public TranscriptRenderer(String baseURL) {
+        this.baseURL = baseURL;
+    }
+
+    /**
+     * Writes every line of a transcript as a <tt>chat-line</tt> element. The lines are those of the transcript when
+     * this is invoked (see {@link Transcript#getSnapshot()}); lines that are added while writing are not written.
+     *
+     * @param transcript the transcript.
+     * @param out        the writer.
+     * @throws IOException if writing failed.
+     */
+    public void writeHTML(Transcript transcript, Writer out) throws IOException {
+        final List<Line> lines = transcript.getSnapshot();
+        final int count = lines.size();
+        for (int i = 0; i < count; i++) {
+            final Line line = lines.get(i);
+            out.write("<div class=\"chat-line\">");
+            if (!ModelUtil.hasLength(line.getFrom())) {
+                out.write("<span class=\"chat-announcement\"> ");
+                writeBody(line.getText(), out);
+                out.write(" </span>");
+            }
+            else {
+                out.write("<span class=\"client-name\"> ");
+                out.write(StringUtils.escapeHTMLTags(line.getFrom()));
+                out.write(": </span> <span class=\"text\"> ");
+                writeBody(line.getText(), out);
+                out.write(" </span>");
+            }
+            out.write("</div>\n");
+            flushIfNeeded(i, out);
+        }
+        out.flush();
+    }
+
+    private static void flushIfNeeded(int line, Writer out) throws IOException {
+        if ((line + 1) % FLUSH_INTERVAL == 0) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes filtered HTML, prefixing the addresses of images with the base URL.
+     */
+    private void writeBody(String text, Writer out) throws IOException {
+        if (text == null) {
+            return;
+        }
+        if (baseURL == null) {
+            out.write(text);
+            return;
+        }
+        int start = 0;
+        int index;
+        while ((index = text.indexOf(SOURCE_ATTRIBUTE, start)) != -1) {
+            final int end = index + SOURCE_ATTRIBUTE.length();
+            out.write(text, start, end - start);
+            out.write(baseURL);
+            out.write('/');
+            start = end;
+        }
+        out.write(text, start, text.length() - start);
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.history;
+
+import org.jivesoftware.webchat.util.WebLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the transcript lines that do not fit on the heap anymore. Lines of all sessions of this node are appended
+ * to a memory-mapped segment file; once a segment is full, a new one is started. Every line is identified by its
+ * address (the segment and the offset within it), which is all that a {@link Transcript} retains of a line that has
+ * been moved here.
+ * <p>
+ * A segment is deleted once every line in it has been released, which happens when the sessions that the lines
+ * belong to are removed.
+ */
+public final class TranscriptStore {
+
+    /**
+     * The default number of bytes in a segment.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    private static final TranscriptStore INSTANCE = new TranscriptStore();
+
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+
+    private File directory;
+    private Segment active;
+    private int nextSegmentId;
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    public static TranscriptStore getInstance() {
+        return INSTANCE;
+    }
+
+    private TranscriptStore() {
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param record the record.
+     * @return the address of the record.
+     * @throws IOException if no segment could be created.
+     */
+    public synchronized long append(byte[] record) throws IOException {
+        final int length = 4 + record.length;
+        if (active == null || active.buffer.remaining() < length) {
+            final Segment full = active;
+            active = createSegment(Math.max(segmentSize, length));
+            if (full != null && full.liveRecords == 0) {
+                reclaim(full);
+            }
+        }
+
+        final int offset = active.buffer.position();
+        active.buffer.putInt(record.length);
+        active.buffer.put(record);
+        active.liveRecords++;
+        return ((long) active.id << 32) | offset;
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param address the address of the record.
+     * @return the record.
+     * @throws IllegalStateException if the record has been released.
+     */
+    public byte[] read(long address) {
+        final Segment segment = segments.get((int) (address >>> 32));
+        if (segment == null) {
+            throw new IllegalStateException("Transcript record has been released: " + Long.toHexString(address));
+        }
+        final ByteBuffer buffer = segment.view.duplicate();
+        buffer.position((int) address);
+        final byte[] record = new byte[buffer.getInt()];
+        buffer.get(record);
+        return record;
+    }
+
+    /**
+     * Releases a record. The segment that holds the record is deleted once all of its records have been released.
+     *
+     * @param address the address of the record.
+     */
+    public synchronized void release(long address) {
+        final Segment segment = segments.get((int) (address >>> 32));
+        if (segment == null) {
+            return;
+        }
+        segment.liveRecords--;
+        if (segment.liveRecords == 0 && segment != active) {
+            reclaim(segment);
+        }
+    }
+
+    /**
+     * Deletes all segments. Transcripts that still refer to records in this store cannot be read afterwards. This is
+     * invoked when the web application is shut down.
+     */
+    public synchronized void close() {
+        for (Segment segment : segments.values()) {
+            reclaim(segment);
+        }
+        active = null;
+        if (directory != null && !directory.delete()) {
+            directory.deleteOnExit();
+        }
+        directory = null;
+    }
+
+    /**
+     * Returns the number of bytes in a segment.
+     *
+     * @return the number of bytes in a segment.
+     */
+    public synchronized int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets the number of bytes in a segment. This applies to segments that are created afterwards.
+     *
+     * @param segmentSize the number of bytes in a segment.
+     */
+    public synchronized void setSegmentSize(int segmentSize) {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("A segment must hold at least 1024 bytes: " + segmentSize);
+        }
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Returns the number of segments, including the one that records are appended to.
+     *
+     * @return the number of segments.
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    private Segment createSegment(int size) throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("webchat-transcripts").toFile();
+        }
+        final int id = nextSegmentId++;
+        final File file = new File(directory, "segment-" + id + ".log");
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            // The mapping remains valid after the file has been closed.
+            final MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            final Segment segment = new Segment(id, file, buffer);
+            segments.put(id, segment);
+            return segment;
+        }
+    }
+
+    private void reclaim(Segment segment) {
+        segments.remove(segment.id);
+        // The file is unmapped once the buffer has been garbage collected. Until then, some platforms do not allow
+        // the file to be deleted.
+        if (!segment.file.delete()) {
+            segment.file.deleteOnExit();
+            WebLog.debug("Transcript segment " + segment.file + " is deleted on exit.");
+        }
+    }
+
+    /**
+     * A segment file, and the number of records in it that have not been released.
+     */
+    private static final class Segment {
+        private final int id;
+        private final File file;
+        private final MappedByteBuffer buffer;
+
+        /**
+         * A view on the segment that is never repositioned, which readers can duplicate without locking.
+         */
+        private final ByteBuffer view;
+
+        private int liveRecords;
+
+        private Segment(int id, File file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.view = buffer.asReadOnlyBuffer();
+        }
+    }
+}
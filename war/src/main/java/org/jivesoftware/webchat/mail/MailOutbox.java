@@ -0,0 +1,539 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.mail;
+
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
+import org.jivesoftware.webchat.providers.Settings;
+import org.jivesoftware.webchat.util.ModelUtil;
+import org.jivesoftware.webchat.util.RefreshingCache;
+import org.jivesoftware.webchat.util.WebLog;
+
+import java.io.IOException;
+import java.rmi.server.UID;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * Sends email in the background. Messages are put in a bounded queue and delivered by a small pool of threads, so
+ * that requests never wait for the mail server (or for the email settings of a workgroup).
+ * <p>
+ * Connections to a mail server are kept open and reused by later messages, until they have been idle for a minute.
+ * A message that could not be delivered is tried again after a delay that doubles with every attempt, unless its
+ * addresses are invalid.
+ * <p>
+ * Nothing in the web application sends mail through the outbox yet: the pages have the workgroup service send
+ * messages and transcripts (see {@link org.jivesoftware.smackx.workgroup.user.WorkgroupExt#sendMail}). It is
+ * started by the first message, so that it takes no threads until then.
+ */
+public final class MailOutbox {
+
+    /**
+     * The number of threads that deliver messages, which is also the number of connections that are kept open to
+     * a mail server.
+     */
+    public static final int THREAD_COUNT = 2;
+
+    /**
+     * The maximum number of messages that wait to be delivered. Messages beyond this number are rejected.
+     */
+    public static final int QUEUE_SIZE = 1000;
+
+    /**
+     * The number of times delivery of a message is attempted.
+     */
+    public static final int MAX_ATTEMPTS = 4;
+
+    /**
+     * The number of milliseconds before the first retry of a message. The delay doubles with every retry.
+     */
+    public static final long RETRY_DELAY = 5000;
+
+    /**
+     * The number of milliseconds after which an unused connection to a mail server is closed.
+     */
+    private static final long IDLE_TIMEOUT = 60 * 1000;
+
+    /**
+     * The number of milliseconds after which connecting to, or waiting for, a mail server fails.
+     */
+    private static final int SOCKET_TIMEOUT = 30 * 1000;
+
+    private static MailOutbox singleton;
+    private static final Object LOCK = new Object();
+
+    /**
+     * Loads the email settings of a workgroup.
+     */
+    private final RefreshingCache.Loader<String, Map<String, String>> settingsLoader;
+
+    /**
+     * The mail servers that messages have been sent through, by their settings.
+     */
+    private final ConcurrentMap<String, MailServer> servers = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Schedules retries, and closes idle connections.
+     */
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder connectionCount = new LongAdder();
+
+    /**
+     * Returns the singleton instance of <CODE>MailOutbox</CODE>, creating it if necessary. The instance reads the
+     * email settings of workgroups through the global connection.
+     *
+     * @return the singleton instance of <Code>MailOutbox</CODE>
+     */
+    public static MailOutbox getInstance() {
+        synchronized (LOCK) {
+            if (singleton == null) {
+                singleton = new MailOutbox(new RefreshingCache.Loader<String, Map<String, String>>() {
+                    public Map<String, String> load(String workgroup) throws Exception {
+                        return Settings.getSettings(ChatManager.getInstance().getGlobalConnection(), workgroup, Settings.EMAIL_SETTINGS);
+                    }
+                });
+            }
+            return singleton;
+        }
+    }
+
+    /**
+     * Returns true if the singleton instance has been created, which is when the first message was sent.
+     *
+     * @return true if the outbox has been started.
+     */
+    public static boolean isStarted() {
+        synchronized (LOCK) {
+            return singleton != null;
+        }
+    }
+
+    /**
+     * Closes the singleton instance, if it has been created. This is invoked when the web application is shut down.
+     */
+    public static void shutdown() {
+        synchronized (LOCK) {
+            if (singleton == null) {
+                return;
+            }
+            singleton.close();
+            singleton = null;
+        }
+    }
+
+    /**
+     * Creates an outbox that reads the email settings of workgroups (the <tt>host</tt>, <tt>port</tt>,
+     * <tt>username</tt> and <tt>password</tt> of a mail server) from a loader, rather than from the server. The web
+     * application uses {@link #getInstance()}.
+     *
+     * @param settingsLoader loads the email settings of a workgroup.
+     */
+    public MailOutbox(RefreshingCache.Loader<String, Map<String, String>> settingsLoader) {
+        this.settingsLoader = settingsLoader;
+        workers = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Mail outbox " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        workers.allowCoreThreadTimeOut(true);
+
+        scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "Mail outbox scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                closeIdleConnections();
+            }
+        }, IDLE_TIMEOUT, IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a message, to be sent through the mail server that is configured in the email settings of a
+     * workgroup.
+     *
+     * @param workgroup the workgroup.
+     * @param to        the comma-separated addresses to send the message to.
+     * @param from      the address the message is from.
+     * @param subject   the subject of the message.
+     * @param body      the body of the message.
+     * @param html      true if the body is HTML, false if it is plain text.
+     * @return true if the message was queued, false if the queue is full.
+     */
+    public boolean send(String workgroup, String to, String from, String subject, String body, boolean html) {
+        final Delivery delivery = new Delivery(workgroup, to, from, subject, body, html);
+        try {
+            workers.execute(delivery);
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            WebLog.logError("Mail outbox is full, discarding message to " + to + ".");
+            return false;
+        }
+    }
+
+    /**
+     * Stops delivering messages, and closes all connections. Messages that have not been sent yet are discarded.
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        final int discarded = workers.shutdownNow().size() + pendingRetries.get();
+        if (discarded > 0) {
+            WebLog.logError("Mail outbox closed, discarding " + discarded + " message(s).");
+        }
+        for (MailServer server : servers.values()) {
+            server.closeIdleConnections(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Returns the number of messages that wait to be delivered, including the ones that wait to be retried.
+     *
+     * @return the number of waiting messages.
+     */
+    public int getQueueSize() {
+        return workers.getQueue().size() + pendingRetries.get();
+    }
+
+    /**
+     * Returns the number of messages that have been sent.
+     *
+     * @return the number of messages that have been sent.
+     */
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * Returns the number of times that sending a message was retried.
+     *
+     * @return the number of retries.
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * Returns the number of messages that could not be sent, after all attempts.
+     *
+     * @return the number of messages that failed.
+     */
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * Returns the number of messages that were discarded because the queue was full.
+     *
+     * @return the number of rejected messages.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Returns the number of connections that have been opened to mail servers.
+     *
+     * @return the number of connections that have been opened.
+     */
+    public long getConnectionCount() {
+        return connectionCount.sum();
+    }
+
+    private void closeIdleConnections() {
+        final long idleSince = System.currentTimeMillis() - IDLE_TIMEOUT;
+        for (MailServer server : servers.values()) {
+            server.closeIdleConnections(idleSince);
+        }
+    }
+
+    /**
+     * Returns the mail server that is configured in the email settings of a workgroup.
+     */
+    private MailServer getServer(String workgroup) throws Exception {
+        final Map<String, String> settings = settingsLoader.load(workgroup);
+        if (settings == null) {
+            throw new IOException("Unable to retrieve the email settings of workgroup " + workgroup + ".");
+        }
+        final String host = settings.get("host");
+        if (!ModelUtil.hasLength(host)) {
+            throw new IllegalStateException("No mail server has been configured for workgroup " + workgroup + ".");
+        }
+        final String port = settings.get("port");
+        final String username = settings.get("username");
+        final String password = settings.get("password");
+
+        final String key = host + '\0' + port + '\0' + username + '\0' + password;
+        MailServer server = servers.get(key);
+        if (server == null) {
+            final MailServer newServer = new MailServer(host, ModelUtil.hasLength(port) ? Integer.parseInt(port.trim()) : -1, username, password);
+            server = servers.putIfAbsent(key, newServer);
+            if (server == null) {
+                server = newServer;
+            }
+        }
+        return server;
+    }
+
+    /**
+     * Returns true if sending a message failed in a way that trying again will not fix.
+     */
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof AddressException || e instanceof IllegalStateException || e instanceof NumberFormatException) {
+            return true;
+        }
+        if (e instanceof SendFailedException) {
+            final SendFailedException sendFailed = (SendFailedException) e;
+            return sendFailed.getInvalidAddresses() != null && sendFailed.getInvalidAddresses().length > 0;
+        }
+        return false;
+    }
+
+    /**
+     * A message, and the number of times it has been attempted to send it.
+     */
+    private final class Delivery implements Runnable {
+        private final String workgroup;
+        private final String to;
+        private final String from;
+        private final String subject;
+        private final String body;
+        private final boolean html;
+        private int attempts;
+
+        private Delivery(String workgroup, String to, String from, String subject, String body, boolean html) {
+            this.workgroup = workgroup;
+            this.to = to;
+            this.from = from;
+            this.subject = subject;
+            this.body = body;
+            this.html = html;
+        }
+
+        public void run() {
+            attempts++;
+            final long start = System.nanoTime();
+            try {
+                final MailServer server = getServer(workgroup);
+                server.send(createMessage(server.session));
+                WebChatMetrics.MAIL_SEND_DURATION.observe(System.nanoTime() - start);
+                sentCount.increment();
+            }
+            catch (Exception e) {
+                if (isPermanent(e) || attempts >= MAX_ATTEMPTS) {
+                    failureCount.increment();
+                    WebLog.logError("Error sending mail to " + to + " after " + attempts + " attempt(s).", e);
+                }
+                else {
+                    retry();
+                }
+            }
+        }
+
+        private void retry() {
+            retryCount.increment();
+            pendingRetries.incrementAndGet();
+            final long delay = RETRY_DELAY << (attempts - 1);
+            try {
+                scheduler.schedule(new Runnable() {
+                    public void run() {
+                        pendingRetries.decrementAndGet();
+                        try {
+                            workers.execute(Delivery.this);
+                        }
+                        catch (RejectedExecutionException e) {
+                            failureCount.increment();
+                            WebLog.logError("Mail outbox is full, discarding message to " + to + ".");
+                        }
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+            catch (RejectedExecutionException e) {
+                // The outbox has been closed.
+                pendingRetries.decrementAndGet();
+                failureCount.increment();
+            }
+        }
+
+        private MimeMessage createMessage(Session session) throws MessagingException {
+            final MimeMessage message = new MimeMessage(session);
+
+            final StringTokenizer tokenizer = new StringTokenizer(to, ",");
+            final InternetAddress[] addresses = new InternetAddress[tokenizer.countTokens()];
+            for (int i = 0; i < addresses.length; i++) {
+                addresses[i] = new InternetAddress(tokenizer.nextToken().trim());
+            }
+            message.setRecipients(Message.RecipientType.TO, addresses);
+            message.setFrom(new InternetAddress(from));
+            message.setSubject(subject);
+            message.setHeader("X-Mailer", new UID().toString());
+            message.setSentDate(new Date());
+            message.setContent(body, html ? "text/html" : "text/plain");
+            message.saveChanges();
+            return message;
+        }
+    }
+
+    /**
+     * A mail server, and the connections to it that are not in use.
+     */
+    private final class MailServer {
+        private final String host;
+        private final int port;
+        private final String username;
+        private final String password;
+        private final Session session;
+
+        /**
+         * The idle connections, most recently used first.
+         */
+        private final Deque<Connection> idle = new ArrayDeque<>();
+
+        private MailServer(String host, int port, String username, String password) {
+            this.host = host;
+            this.port = port;
+            this.username = ModelUtil.hasLength(username) ? username : null;
+            this.password = ModelUtil.hasLength(password) ? password : null;
+
+            // Each server gets properties of its own, rather than changing those of the system.
+            final Properties properties = new Properties();
+            properties.put("mail.transport.protocol", "smtp");
+            properties.put("mail.smtp.host", host);
+            if (port != -1) {
+                properties.put("mail.smtp.port", String.valueOf(port));
+            }
+            properties.put("mail.smtp.auth", String.valueOf(this.username != null));
+            properties.put("mail.smtp.connectiontimeout", String.valueOf(SOCKET_TIMEOUT));
+            properties.put("mail.smtp.timeout", String.valueOf(SOCKET_TIMEOUT));
+            this.session = Session.getInstance(properties);
+        }
+
+        private void send(MimeMessage message) throws MessagingException {
+            final Connection connection = borrow();
+            try {
+                connection.transport.sendMessage(message, message.getAllRecipients());
+            }
+            catch (MessagingException | RuntimeException e) {
+                // The state of the connection is unknown, so it is not reused.
+                close(connection);
+                throw e;
+            }
+            release(connection);
+        }
+
+        private Connection borrow() throws MessagingException {
+            final long idleSince = System.currentTimeMillis() - IDLE_TIMEOUT;
+            while (true) {
+                final Connection connection;
+                synchronized (this) {
+                    connection = idle.pollFirst();
+                }
+                if (connection == null) {
+                    break;
+                }
+                if (connection.lastUsed > idleSince && connection.transport.isConnected()) {
+                    return connection;
+                }
+                close(connection);
+            }
+
+            final Transport transport = session.getTransport("smtp");
+            transport.connect(host, port, username, password);
+            connectionCount.increment();
+            return new Connection(transport);
+        }
+
+        private void release(Connection connection) {
+            connection.lastUsed = System.currentTimeMillis();
+            synchronized (this) {
+                if (idle.size() < THREAD_COUNT) {
+                    idle.addFirst(connection);
+                    return;
+                }
+            }
+            close(connection);
+        }
+
+        private void closeIdleConnections(long idleSince) {
+            while (true) {
+                final Connection connection;
+                synchronized (this) {
+                    // The least recently used connections are at the end.
+                    if (idle.isEmpty() || idle.peekLast().lastUsed > idleSince) {
+                        return;
+                    }
+                    connection = idle.pollLast();
+                }
+                close(connection);
+            }
+        }
+
+        private void close(Connection connection) {
+            try {
+                connection.transport.close();
+            }
+            catch (MessagingException e) {
+                WebLog.debug("Unable to close connection to mail server " + host + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A connection to a mail server, and the time it was last used.
+     */
+    private static final class Connection {
+        private final Transport transport;
+        private long lastUsed;
+
+        private Connection(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.management;
+
+/**
+ * The management interface of a cache.
+ */
+public interface CacheMXBean {
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return the number of entries.
+     */
+    int getSize();
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     *
+     * @return the number of hits.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups that were not answered from the cache.
+     *
+     * @return the number of misses.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the fraction of lookups that were answered from the cache.
+     *
+     * @return the hit ratio, between 0 and 1, or 0 if there were no lookups.
+     */
+    double getHitRatio();
+}
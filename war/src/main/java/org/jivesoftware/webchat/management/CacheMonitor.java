@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.management;
+
+/**
+ * Exposes the statistics of a cache as a {@link CacheMXBean}. Subclasses read the statistics from the cache.
+ */
+public abstract class CacheMonitor implements CacheMXBean {
+
+    public double getHitRatio() {
+        final long hits = getHitCount();
+        final long lookups = hits + getMissCount();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.management;
+
+import java.util.Map;
+
+/**
+ * The management interface of the chat sessions of the web chat, and of the connection that it shares between them.
+ */
+public interface ChatManagerMXBean {
+
+    /**
+     * Returns the number of sessions, in any state.
+     *
+     * @return the number of sessions.
+     */
+    int getSessionCount();
+
+    /**
+     * Returns the number of sessions that are in a chat with an agent.
+     *
+     * @return the number of active sessions.
+     */
+    int getActiveSessionCount();
+
+    /**
+     * Returns the number of sessions that are waiting in the queue of a workgroup.
+     *
+     * @return the number of queued sessions.
+     */
+    int getQueuedSessionCount();
+
+    /**
+     * Returns the number of sessions that have been closed, and are retained until they are removed.
+     *
+     * @return the number of closed sessions.
+     */
+    int getClosedSessionCount();
+
+    /**
+     * Returns the number of sessions that have been routed to an agent since the web chat was started.
+     *
+     * @return the number of routed sessions.
+     */
+    long getRoutedSessionCount();
+
+    /**
+     * Returns the number of sessions that have been removed because they were inactive, or closed for too long.
+     *
+     * @return the number of expired sessions.
+     */
+    long getExpiredSessionCount();
+
+    /**
+     * Returns the number of times the sessions have been checked for inactivity.
+     *
+     * @return the number of sweeps.
+     */
+    long getSweepCount();
+
+    /**
+     * Returns the number of microseconds the last check of the sessions for inactivity took.
+     *
+     * @return the duration of the last sweep, in microseconds.
+     */
+    long getLastSweepDuration();
+
+    /**
+     * Returns the largest number of microseconds a check of the sessions for inactivity took.
+     *
+     * @return the duration of the longest sweep, in microseconds.
+     */
+    long getMaxSweepDuration();
+
+    /**
+     * Returns the number of sessions that are waiting in the queue of each workgroup.
+     *
+     * @return the number of queued sessions, by workgroup.
+     */
+    Map<String, Integer> getQueueDepths();
+
+    /**
+     * Returns the state of the global connection: <tt>AUTHENTICATED</tt>, <tt>CONNECTED</tt>,
+     * <tt>DISCONNECTED</tt>, or <tt>NONE</tt> if it has not been created.
+     *
+     * @return the state of the global connection.
+     */
+    String getConnectionState();
+
+    /**
+     * Closes and removes the sessions of which the browser has not polled for new messages in the given number of
+     * seconds.
+     *
+     * @param seconds the number of seconds after which a session is idle.
+     * @return the number of sessions that were removed.
+     */
+    int closeIdleSessions(long seconds);
+}
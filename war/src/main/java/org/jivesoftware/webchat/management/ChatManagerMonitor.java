@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.management;
+
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.ChatSession;
+import org.jivesoftware.webchat.util.WebLog;
+
+import org.jivesoftware.smack.tcp.XMPPTCPConnection;
+import org.jivesoftware.smackx.workgroup.user.Workgroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the {@link ChatManager} as a {@link ChatManagerMXBean}. The session counts are computed when they are
+ * asked for, from the sessions at that moment.
+ */
+public class ChatManagerMonitor implements ChatManagerMXBean {
+
+    private final ChatManager chatManager = ChatManager.getInstance();
+
+    public int getSessionCount() {
+        return chatManager.getNumberOfSessions();
+    }
+
+    public int getActiveSessionCount() {
+        int count = 0;
+        for (ChatSession chatSession : getSessions()) {
+            if (!chatSession.isClosed() && chatSession.isInGroupChat()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getQueuedSessionCount() {
+        int count = 0;
+        for (ChatSession chatSession : getSessions()) {
+            if (!chatSession.isClosed() && chatSession.isInQueue()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getClosedSessionCount() {
+        int count = 0;
+        for (ChatSession chatSession : getSessions()) {
+            if (chatSession.isClosed()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getRoutedSessionCount() {
+        return chatManager.getRoutedCount();
+    }
+
+    public long getExpiredSessionCount() {
+        return chatManager.getExpiredCount();
+    }
+
+    public long getSweepCount() {
+        return chatManager.getSweepCount();
+    }
+
+    public long getLastSweepDuration() {
+        return chatManager.getLastSweepDuration();
+    }
+
+    public long getMaxSweepDuration() {
+        return chatManager.getMaxSweepDuration();
+    }
+
+    public Map<String, Integer> getQueueDepths() {
+        final Map<String, Integer> depths = new TreeMap<>();
+        for (ChatSession chatSession : getSessions()) {
+            final Workgroup workgroup = chatSession.getWorkgroup();
+            if (workgroup != null && !chatSession.isClosed() && chatSession.isInQueue()) {
+                final String name = workgroup.getWorkgroupJID().toString();
+                final Integer depth = depths.get(name);
+                depths.put(name, depth != null ? depth + 1 : 1);
+            }
+        }
+        return depths;
+    }
+
+    public String getConnectionState() {
+        final XMPPTCPConnection connection = chatManager.getGlobalConnection();
+        if (connection == null) {
+            return "NONE";
+        }
+        if (connection.isAuthenticated()) {
+            return "AUTHENTICATED";
+        }
+        return connection.isConnected() ? "CONNECTED" : "DISCONNECTED";
+    }
+
+    public int closeIdleSessions(long seconds) {
+        final int count = chatManager.closeIdleSessions(TimeUnit.SECONDS.toMillis(Math.max(0, seconds)));
+        WebLog.log("Closed " + count + " chat session(s) that were idle for more than " + seconds + " seconds.");
+        return count;
+    }
+
+    private List<ChatSession> getSessions() {
+        // Copying the synchronized collection holds its lock, iterating the copy does not.
+        return new ArrayList<>(chatManager.getChatSessions());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.management;
+
+import org.jivesoftware.webchat.actions.AgentPresenceCache;
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.providers.Settings;
+import org.jivesoftware.webchat.util.SettingsManager;
+import org.jivesoftware.webchat.util.WebLog;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+
+/**
+ * Registers the management beans of the web chat with the platform MBean server, under the domain
+ * <tt>org.jivesoftware.webchat</tt>. The name of every bean includes the context path of the web application, so
+ * that several deployments can run in the same server.
+ */
+public final class WebChatManagement {
+
+    /**
+     * The domain of the names of the management beans.
+     */
+    public static final String DOMAIN = "org.jivesoftware.webchat";
+
+    private static final List<ObjectName> registered = new ArrayList<>();
+
+    private WebChatManagement() {
+    }
+
+    /**
+     * Registers the management beans. This is invoked when the web application is started.
+     *
+     * @param context the context of the web application.
+     */
+    public static synchronized void register(ServletContext context) {
+        final String contextPath = ObjectName.quote(context.getContextPath().length() > 0 ? context.getContextPath() : "/");
+
+        register("type=ChatManager,context=" + contextPath, new ChatManagerMonitor());
+
+        register("type=Cache,name=ChatSettings,context=" + contextPath, new CacheMonitor() {
+            public int getSize() {
+                return SettingsManager.getInstance().getChatSettingsCount();
+            }
+
+            public long getHitCount() {
+                return SettingsManager.getInstance().getChatSettingsHitCount();
+            }
+
+            public long getMissCount() {
+                return SettingsManager.getInstance().getChatSettingsMissCount();
+            }
+        });
+
+        register("type=Cache,name=WorkgroupSettings,context=" + contextPath, new CacheMonitor() {
+            public int getSize() {
+                return Settings.getCacheSize();
+            }
+
+            public long getHitCount() {
+                return Settings.getCacheHitCount();
+            }
+
+            public long getMissCount() {
+                return Settings.getCacheMissCount();
+            }
+        });
+
+        register("type=Cache,name=WorkgroupForms,context=" + contextPath, new CacheMonitor() {
+            public int getSize() {
+                return WorkgroupStatus.getWorkgroupFormCount();
+            }
+
+            public long getHitCount() {
+                return WorkgroupStatus.getWorkgroupFormHitCount();
+            }
+
+            public long getMissCount() {
+                return WorkgroupStatus.getWorkgroupFormMissCount();
+            }
+        });
+
+        register("type=Cache,name=AgentPresence,context=" + contextPath, new CacheMonitor() {
+            private final AgentPresenceCache cache = WorkgroupStatus.getAgentPresenceCache();
+
+            public int getSize() {
+                return cache.size();
+            }
+
+            public long getHitCount() {
+                return cache.getHitCount();
+            }
+
+            public long getMissCount() {
+                return cache.getLookupCount() - cache.getHitCount();
+            }
+        });
+    }
+
+    /**
+     * Unregisters the management beans. This is invoked when the web application is shut down.
+     */
+    public static synchronized void unregister() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            }
+            catch (JMException e) {
+                WebLog.logError("Unable to unregister management bean " + name, e);
+            }
+        }
+        registered.clear();
+    }
+
+    private static void register(String properties, Object bean) {
+        try {
+            final ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                // Left behind by an earlier deployment that was not shut down properly.
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+            registered.add(name);
+        }
+        catch (JMException | SecurityException e) {
+            WebLog.logError("Unable to register management bean " + properties, e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+/**
+ * The times at which a chat session reached the milestones of the journey of a visitor, from the start of the
+ * session to the first reply of an agent, and the end of the session.
+ * <p>
+ * Every milestone is recorded once, as the time elapsed since the session was created, in the histograms of
+ * {@link WebChatMetrics} and in the {@link JourneyWindow}. Both are kept per workgroup, and the workgroup of a session
+ * is only known once it joins a queue, so milestones that are reached before that (connecting) are held back until
+ * then. A session that never joins a queue is not recorded.
+ */
+public final class ChatJourney {
+
+    /**
+     * The milestones of a chat session, in the order in which they are normally reached.
+     */
+    public enum Milestone {
+        /**
+         * The session was created.
+         */
+        CREATED("Created", null),
+
+        /**
+         * The session was connected to the server, and logged in.
+         */
+        CONNECTED("Connected", WebChatMetrics.TIME_TO_CONNECT),
+
+        /**
+         * The session joined the queue of a workgroup.
+         */
+        QUEUED("Queued", WebChatMetrics.TIME_TO_QUEUE),
+
+        /**
+         * An agent accepted the session, and invited it to a room.
+         */
+        INVITED("Invited", WebChatMetrics.TIME_TO_INVITATION),
+
+        /**
+         * The session joined the room of the agent.
+         */
+        JOINED_ROOM("Joined room", WebChatMetrics.TIME_TO_ROOM),
+
+        /**
+         * The first message of an agent was received.
+         */
+        FIRST_AGENT_MESSAGE("First agent message", WebChatMetrics.TIME_TO_FIRST_AGENT_MESSAGE),
+
+        /**
+         * The session was closed.
+         */
+        CLOSED("Closed", WebChatMetrics.CHAT_DURATION);
+
+        private final String displayName;
+        private final Histogram histogram;
+
+        Milestone(String displayName, Histogram histogram) {
+            this.displayName = displayName;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Returns the name of the milestone, as shown to administrators.
+         *
+         * @return the name of the milestone.
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private static final Milestone[] MILESTONES = Milestone.values();
+
+    /**
+     * The time at which every milestone was reached, in nanoseconds, or 0 if it was not reached.
+     */
+    private final long[] times = new long[MILESTONES.length];
+
+    /**
+     * The milestones that have been recorded, as a bit set of their ordinals.
+     */
+    private int recorded;
+
+    private String workgroup;
+
+    /**
+     * Creates the journey of a chat session that is created now.
+     */
+    public ChatJourney() {
+        times[Milestone.CREATED.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * Sets the workgroup of the session, and records the milestones that have been reached so far. This is invoked
+     * when the session joins the queue of the workgroup; the workgroup is not changed afterwards.
+     *
+     * @param workgroup the address of the workgroup.
+     */
+    public synchronized void setWorkgroup(String workgroup) {
+        if (this.workgroup == null) {
+            this.workgroup = workgroup;
+            recordReached();
+        }
+    }
+
+    /**
+     * Notes that the session reached a milestone now. Milestones that were already reached are ignored.
+     *
+     * @param milestone the milestone.
+     */
+    public synchronized void reached(Milestone milestone) {
+        if (times[milestone.ordinal()] == 0) {
+            times[milestone.ordinal()] = System.nanoTime();
+            if (workgroup != null) {
+                recordReached();
+            }
+        }
+    }
+
+    /**
+     * Returns whether the session reached a milestone.
+     *
+     * @param milestone the milestone.
+     * @return true if the milestone was reached.
+     */
+    public synchronized boolean hasReached(Milestone milestone) {
+        return times[milestone.ordinal()] != 0;
+    }
+
+    /**
+     * Returns the time from the creation of the session until it reached a milestone.
+     *
+     * @param milestone the milestone.
+     * @return the elapsed time in milliseconds, or -1 if the milestone was not reached.
+     */
+    public synchronized long getElapsedTime(Milestone milestone) {
+        final long time = times[milestone.ordinal()];
+        return time == 0 ? -1 : (time - times[Milestone.CREATED.ordinal()]) / 1000000;
+    }
+
+    private void recordReached() {
+        final long created = times[Milestone.CREATED.ordinal()];
+        for (Milestone milestone : MILESTONES) {
+            final int bit = 1 << milestone.ordinal();
+            if (milestone.histogram == null || times[milestone.ordinal()] == 0 || (recorded & bit) != 0) {
+                continue;
+            }
+            recorded |= bit;
+
+            final long elapsed = times[milestone.ordinal()] - created;
+            milestone.histogram.labels(workgroup).observe(elapsed);
+            JourneyWindow.getInstance().add(workgroup, milestone, elapsed);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up. Incrementing it never blocks: concurrent threads update separate cells.
+ */
+public final class Counter extends Metric {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name, String help) {
+        super(name, help, "counter");
+    }
+
+    /**
+     * Adds one to this counter.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds to this counter.
+     *
+     * @param amount the amount to add, which must not be negative.
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Returns the value of this counter.
+     *
+     * @return the value of this counter.
+     */
+    public long get() {
+        return count.sum();
+    }
+
+    protected void writeSamples(Writer out) throws IOException {
+        writeSample(out, getName(), null, Long.toString(count.sum()));
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distribution of durations, counted in buckets with fixed upper bounds. Recording a duration never blocks: it
+ * finds the bucket by a binary search, and increments counters of which concurrent threads update separate cells.
+ * <p>
+ * A histogram either records durations itself, or has a label, in which case the durations are recorded per value
+ * of the label, through {@link #labels(String)}.
+ */
+public final class Histogram extends Metric {
+
+    /**
+     * Upper bounds (in seconds) that suit requests to a remote server.
+     */
+    public static final double[] REMOTE_BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    /**
+     * Upper bounds (in seconds) that suit work that is done in memory.
+     */
+    public static final double[] LOCAL_BOUNDS = {0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01};
+
+    /**
+     * Upper bounds (in seconds) that suit the steps of a chat, which take from seconds (connecting) to many minutes
+     * (waiting in a queue, chatting).
+     */
+    public static final double[] JOURNEY_BOUNDS = {0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600, 1200, 1800, 3600};
+
+    private final double[] bounds;
+    private final long[] limits;
+    private final String labelName;
+    private final Recorder recorder;
+    private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    Histogram(String name, String help, double[] bounds, String labelName) {
+        super(name, help, "histogram");
+        this.bounds = bounds.clone();
+        this.limits = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            limits[i] = Math.round(bounds[i] * 1e9);
+        }
+        this.labelName = labelName;
+        this.recorder = labelName == null ? new Recorder(limits) : null;
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration, in nanoseconds.
+     * @throws IllegalStateException if this histogram has a label.
+     */
+    public void observe(long nanos) {
+        if (recorder == null) {
+            throw new IllegalStateException(getName() + " is recorded per " + labelName);
+        }
+        recorder.observe(nanos);
+    }
+
+    /**
+     * Returns the recorder of the durations with a value of the label of this histogram.
+     *
+     * @param value the value of the label.
+     * @return the recorder of the value.
+     * @throws IllegalStateException if this histogram has no label.
+     */
+    public Recorder labels(String value) {
+        if (labelName == null) {
+            throw new IllegalStateException(getName() + " has no label");
+        }
+        Recorder labeled = recorders.get(value);
+        if (labeled == null) {
+            final Recorder newRecorder = new Recorder(limits);
+            labeled = recorders.putIfAbsent(value, newRecorder);
+            if (labeled == null) {
+                labeled = newRecorder;
+            }
+        }
+        return labeled;
+    }
+
+    protected void writeSamples(Writer out) throws IOException {
+        if (recorder != null) {
+            writeSamples(out, recorder, null);
+        }
+        else {
+            for (Map.Entry<String, Recorder> entry : new TreeMap<>(recorders).entrySet()) {
+                writeSamples(out, entry.getValue(), label(labelName, entry.getKey()));
+            }
+        }
+    }
+
+    private void writeSamples(Writer out, Recorder source, String labels) throws IOException {
+        final String prefix = labels != null ? labels + "," : "";
+        long count = 0;
+        for (int i = 0; i <= bounds.length; i++) {
+            count += source.buckets[i].sum();
+            final String bound = i < bounds.length ? format(bounds[i]) : "+Inf";
+            writeSample(out, getName() + "_bucket", prefix + "le=\"" + bound + '"', Long.toString(count));
+        }
+        writeSample(out, getName() + "_sum", labels, format(source.sum.sum() / 1e9));
+        writeSample(out, getName() + "_count", labels, Long.toString(count));
+    }
+
+    /**
+     * Records durations in the buckets of a histogram.
+     */
+    public static final class Recorder {
+        private final long[] limits;
+        private final LongAdder[] buckets;
+        private final LongAdder sum = new LongAdder();
+
+        private Recorder(long[] limits) {
+            this.limits = limits;
+            this.buckets = new LongAdder[limits.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos the duration, in nanoseconds.
+         */
+        public void observe(long nanos) {
+            int index = Arrays.binarySearch(limits, nanos);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            buckets[index].increment();
+            sum.add(nanos);
+        }
+    }
+}
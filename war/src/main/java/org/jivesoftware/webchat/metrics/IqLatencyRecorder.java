@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import org.jivesoftware.smack.StanzaListener;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.filter.IQTypeFilter;
+import org.jivesoftware.smack.filter.OrFilter;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Stanza;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long the server takes to answer the requests (IQs of type get or set) that are sent over a connection,
+ * per type of request. The type is the name of the child element of the request, such as <tt>query</tt> or
+ * <tt>chat-settings</tt>.
+ */
+public final class IqLatencyRecorder {
+
+    /**
+     * The number of nanoseconds after which a request that has not been answered is forgotten.
+     */
+    private static final long MAX_AGE = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * The number of pending requests above which requests that were not answered are looked for.
+     */
+    private static final int PRUNE_THRESHOLD = 1000;
+
+    /**
+     * The requests that have not been answered yet, by stanza id.
+     */
+    private final ConcurrentMap<String, Request> pending = new ConcurrentHashMap<>();
+
+    private final Histogram histogram;
+
+    private IqLatencyRecorder(Histogram histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * Records the latency of the requests that are sent over a connection from now on.
+     *
+     * @param connection the connection.
+     * @param histogram  the histogram to record the latencies in, which must have a label for the type of request.
+     */
+    public static void attach(XMPPConnection connection, Histogram histogram) {
+        final IqLatencyRecorder recorder = new IqLatencyRecorder(histogram);
+
+        // Interceptors are invoked in the sending thread, right before the request is sent.
+        connection.addPacketInterceptor(new StanzaListener() {
+            public void processStanza(Stanza stanza) {
+                recorder.sent((IQ) stanza);
+            }
+        }, IQTypeFilter.GET_OR_SET);
+
+        connection.addSyncStanzaListener(new StanzaListener() {
+            public void processStanza(Stanza stanza) {
+                recorder.answered(stanza);
+            }
+        }, new OrFilter(IQTypeFilter.RESULT, IQTypeFilter.ERROR));
+    }
+
+    private void sent(IQ request) {
+        if (request.getStanzaId() == null) {
+            return;
+        }
+        final String type = request.getChildElementName();
+        pending.put(request.getStanzaId(), new Request(type != null ? type : "unknown", System.nanoTime()));
+
+        if (pending.size() > PRUNE_THRESHOLD) {
+            final long now = System.nanoTime();
+            final Iterator<Request> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                if (now - iterator.next().sent > MAX_AGE) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void answered(Stanza answer) {
+        final Request request = answer.getStanzaId() != null ? pending.remove(answer.getStanzaId()) : null;
+        if (request != null) {
+            histogram.labels(request.type).observe(System.nanoTime() - request.sent);
+        }
+    }
+
+    /**
+     * The type of a request, and the time it was sent.
+     */
+    private static final class Request {
+        private final String type;
+        private final long sent;
+
+        private Request(String type, long sent) {
+            this.type = type;
+            this.sent = sent;
+        }
+    }
+}
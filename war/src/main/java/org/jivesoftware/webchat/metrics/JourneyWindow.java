@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The milestones that chat sessions reached recently (see {@link ChatJourney}), from which the distribution of the
+ * time to every milestone can be queried per workgroup. Only the milestones of the last {@link #WINDOW} milliseconds
+ * are kept, and no more than {@link #MAX_SAMPLES} of them.
+ */
+public final class JourneyWindow {
+
+    /**
+     * The number of milliseconds that milestones are kept.
+     */
+    public static final long WINDOW = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * The maximum number of milestones that are kept.
+     */
+    public static final int MAX_SAMPLES = 20000;
+
+    private static final JourneyWindow INSTANCE = new JourneyWindow();
+
+    private final Deque<Sample> samples = new ArrayDeque<>();
+
+    /**
+     * Returns the singleton instance of <CODE>JourneyWindow</CODE>.
+     *
+     * @return the singleton instance of <Code>JourneyWindow</CODE>.
+     */
+    public static JourneyWindow getInstance() {
+        return INSTANCE;
+    }
+
+    private JourneyWindow() {
+    }
+
+    /**
+     * Adds a milestone that a chat session reached.
+     *
+     * @param workgroup the workgroup of the session.
+     * @param milestone the milestone.
+     * @param elapsed   the time from the creation of the session until it reached the milestone, in nanoseconds.
+     */
+    public synchronized void add(String workgroup, ChatJourney.Milestone milestone, long elapsed) {
+        final long now = System.currentTimeMillis();
+        expire(now);
+        if (samples.size() >= MAX_SAMPLES) {
+            samples.removeFirst();
+        }
+        samples.addLast(new Sample(now, workgroup, milestone, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+    }
+
+    /**
+     * Returns the distribution of the time to every milestone that was reached in the window, per workgroup, sorted
+     * by workgroup and milestone.
+     *
+     * @return the summaries.
+     */
+    public List<Summary> getSummaries() {
+        final Sample[] recent;
+        synchronized (this) {
+            expire(System.currentTimeMillis());
+            recent = samples.toArray(new Sample[samples.size()]);
+        }
+
+        final Map<String, Map<ChatJourney.Milestone, List<Long>>> times = new TreeMap<>();
+        for (Sample sample : recent) {
+            Map<ChatJourney.Milestone, List<Long>> byMilestone = times.get(sample.workgroup);
+            if (byMilestone == null) {
+                byMilestone = new EnumMap<>(ChatJourney.Milestone.class);
+                times.put(sample.workgroup, byMilestone);
+            }
+            List<Long> values = byMilestone.get(sample.milestone);
+            if (values == null) {
+                values = new ArrayList<>();
+                byMilestone.put(sample.milestone, values);
+            }
+            values.add(sample.elapsed);
+        }
+
+        final List<Summary> summaries = new ArrayList<>();
+        for (Map.Entry<String, Map<ChatJourney.Milestone, List<Long>>> workgroup : times.entrySet()) {
+            for (Map.Entry<ChatJourney.Milestone, List<Long>> milestone : workgroup.getValue().entrySet()) {
+                final List<Long> values = milestone.getValue();
+                Collections.sort(values);
+                summaries.add(new Summary(workgroup.getKey(), milestone.getKey(), values.size(),
+                    percentile(values, 50), percentile(values, 90), values.get(values.size() - 1)));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Removes the milestones that are older than the window.
+     */
+    private void expire(long now) {
+        while (!samples.isEmpty() && now - samples.peekFirst().time > WINDOW) {
+            samples.removeFirst();
+        }
+    }
+
+    /**
+     * Returns a percentile of sorted values, using the nearest rank.
+     */
+    private static long percentile(List<Long> sorted, int percentile) {
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    private static final class Sample {
+        private final long time;
+        private final String workgroup;
+        private final ChatJourney.Milestone milestone;
+        private final long elapsed;
+
+        private Sample(long time, String workgroup, ChatJourney.Milestone milestone, long elapsed) {
+            this.time = time;
+            this.workgroup = workgroup;
+            this.milestone = milestone;
+            this.elapsed = elapsed;
+        }
+    }
+
+    /**
+     * The distribution of the time that chat sessions of a workgroup took to reach a milestone.
+     */
+    public static final class Summary {
+        private final String workgroup;
+        private final ChatJourney.Milestone milestone;
+        private final int count;
+        private final long median;
+        private final long percentile90;
+        private final long maximum;
+
+        private Summary(String workgroup, ChatJourney.Milestone milestone, int count, long median, long percentile90, long maximum) {
+            this.workgroup = workgroup;
+            this.milestone = milestone;
+            this.count = count;
+            this.median = median;
+            this.percentile90 = percentile90;
+            this.maximum = maximum;
+        }
+
+        public String getWorkgroup() {
+            return workgroup;
+        }
+
+        public ChatJourney.Milestone getMilestone() {
+            return milestone;
+        }
+
+        /**
+         * Returns the number of sessions that reached the milestone in the window.
+         *
+         * @return the number of sessions.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the median time to the milestone.
+         *
+         * @return the median time in milliseconds.
+         */
+        public long getMedian() {
+            return median;
+        }
+
+        /**
+         * Returns the time to the milestone that 90% of the sessions did not exceed.
+         *
+         * @return the 90th percentile of the time in milliseconds.
+         */
+        public long getPercentile90() {
+            return percentile90;
+        }
+
+        /**
+         * Returns the longest time to the milestone.
+         *
+         * @return the longest time in milliseconds.
+         */
+        public long getMaximum() {
+            return maximum;
+        }
+    }
+}
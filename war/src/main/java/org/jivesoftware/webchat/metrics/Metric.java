@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * A metric that is exposed in the Prometheus text format.
+ */
+public abstract class Metric {
+
+    private final String name;
+    private final String help;
+    private final String type;
+
+    /**
+     * Creates a metric.
+     *
+     * @param name the name of the metric.
+     * @param help the description of the metric.
+     * @param type the Prometheus type of the metric: <tt>counter</tt>, <tt>gauge</tt> or <tt>histogram</tt>.
+     */
+    protected Metric(String name, String help, String type) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+    }
+
+    /**
+     * Returns the name of this metric.
+     *
+     * @return the name of this metric.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Writes this metric: its description, its type and its samples.
+     *
+     * @param out the writer.
+     * @throws IOException if writing failed.
+     */
+    public void write(Writer out) throws IOException {
+        out.write("# HELP ");
+        out.write(name);
+        out.write(' ');
+        out.write(help.replace("\\", "\\\\").replace("\n", "\\n"));
+        out.write("\n# TYPE ");
+        out.write(name);
+        out.write(' ');
+        out.write(type);
+        out.write('\n');
+        writeSamples(out);
+    }
+
+    /**
+     * Writes the samples of this metric.
+     *
+     * @param out the writer.
+     * @throws IOException if writing failed.
+     */
+    protected abstract void writeSamples(Writer out) throws IOException;
+
+    /**
+     * Writes one sample.
+     *
+     * @param out    the writer.
+     * @param name   the name of the sample.
+     * @param labels the labels of the sample, as written between braces, or null if it has none.
+     * @param value  the value of the sample.
+     * @throws IOException if writing failed.
+     */
+    protected static void writeSample(Writer out, String name, String labels, String value) throws IOException {
+        out.write(name);
+        if (labels != null) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    /**
+     * Returns a label, as written between braces.
+     *
+     * @param name  the name of the label.
+     * @param value the value of the label, which is escaped.
+     * @return the label.
+     */
+    protected static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+    }
+
+    /**
+     * Formats a value. Whole numbers are written without a fraction.
+     *
+     * @param value the value.
+     * @return the formatted value.
+     */
+    protected static String format(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        // Plain notation, so that bucket bounds read 0.00001 rather than 1.0E-5.
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
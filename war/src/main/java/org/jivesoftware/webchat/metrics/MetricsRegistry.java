@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A set of metrics, which are written in the order in which they were added.
+ */
+public final class MetricsRegistry {
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    /**
+     * Adds a counter.
+     *
+     * @param name the name of the counter, which should end in <tt>_total</tt>.
+     * @param help the description of the counter.
+     * @return the counter.
+     */
+    public Counter counter(String name, String help) {
+        return add(new Counter(name, help));
+    }
+
+    /**
+     * Adds a histogram of durations.
+     *
+     * @param name   the name of the histogram, which should end in <tt>_seconds</tt>.
+     * @param help   the description of the histogram.
+     * @param bounds the upper bounds of the buckets, in seconds, in ascending order.
+     * @return the histogram.
+     */
+    public Histogram histogram(String name, String help, double[] bounds) {
+        return add(new Histogram(name, help, bounds, null));
+    }
+
+    /**
+     * Adds a histogram of durations, which are recorded per value of a label.
+     *
+     * @param name      the name of the histogram, which should end in <tt>_seconds</tt>.
+     * @param help      the description of the histogram.
+     * @param bounds    the upper bounds of the buckets, in seconds, in ascending order.
+     * @param labelName the name of the label.
+     * @return the histogram.
+     */
+    public Histogram histogram(String name, String help, double[] bounds, String labelName) {
+        return add(new Histogram(name, help, bounds, labelName));
+    }
+
+    /**
+     * Adds a metric.
+     *
+     * @param metric the metric.
+     * @param <M>    the type of the metric.
+     * @return the metric.
+     * @throws IllegalArgumentException if a metric with the same name has been added already.
+     */
+    public <M extends Metric> M add(M metric) {
+        for (Metric existing : metrics) {
+            if (existing.getName().equals(metric.getName())) {
+                throw new IllegalArgumentException("Duplicate metric: " + metric.getName());
+            }
+        }
+        metrics.add(metric);
+        return metric;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format.
+     *
+     * @param out the writer.
+     * @throws IOException if writing failed.
+     */
+    public void write(Writer out) throws IOException {
+        for (Metric metric : metrics) {
+            metric.write(out);
+        }
+    }
+}
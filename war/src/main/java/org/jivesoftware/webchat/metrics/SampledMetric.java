@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A metric of which the value is read from elsewhere when the metrics are written, such as the size of a collection,
+ * or a count that is kept by another class.
+ */
+public abstract class SampledMetric extends Metric {
+
+    /**
+     * Creates a sampled metric.
+     *
+     * @param name the name of the metric.
+     * @param help the description of the metric.
+     * @param type the Prometheus type of the metric: <tt>counter</tt> or <tt>gauge</tt>.
+     */
+    protected SampledMetric(String name, String help, String type) {
+        super(name, help, type);
+    }
+
+    /**
+     * Returns the current value of this metric.
+     *
+     * @return the value.
+     */
+    public abstract double sample();
+
+    protected void writeSamples(Writer out) throws IOException {
+        writeSample(out, getName(), null, format(sample()));
+    }
+}
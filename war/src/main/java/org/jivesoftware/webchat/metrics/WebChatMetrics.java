@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.metrics;
+
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.mail.MailOutbox;
+import org.jivesoftware.webchat.util.WebLog;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The metrics of the web chat, which are served in the Prometheus text format by
+ * {@link org.jivesoftware.webchat.servlets.MetricsServlet}.
+ */
+public final class WebChatMetrics {
+
+    private static final MetricsRegistry registry = new MetricsRegistry();
+
+    /**
+     * Chat sessions that have been started.
+     */
+    public static final Counter CHAT_STARTS = registry.counter("webchat_chat_starts_total",
+        "Chat sessions that have been started.");
+
+    /**
+     * Chat sessions that have joined the queue of a workgroup.
+     */
+    public static final Counter QUEUE_JOINS = registry.counter("webchat_queue_joins_total",
+        "Chat sessions that have joined the queue of a workgroup.");
+
+    /**
+     * Messages that have been received from agents.
+     */
+    public static final Counter MESSAGES_RECEIVED = registry.counter("webchat_messages_received_total",
+        "Chat messages that have been received from agents.");
+
+    /**
+     * Messages that have been sent by visitors.
+     */
+    public static final Counter MESSAGES_SENT = registry.counter("webchat_messages_sent_total",
+        "Chat messages that have been sent by visitors.");
+
+    /**
+     * Polls of the browser for new messages.
+     */
+    public static final Counter POLL_REQUESTS = registry.counter("webchat_poll_requests_total",
+        "Requests of browsers for new chat messages.");
+
+    /**
+     * Requests for images that show whether a workgroup or agent is available.
+     */
+    public static final Counter STATUS_IMAGE_REQUESTS = registry.counter("webchat_status_image_requests_total",
+        "Requests for images that show the availability of a workgroup or agent.");
+
+    /**
+     * Times that the global connection has been established again after it was lost.
+     */
+    public static final Counter GLOBAL_RECONNECTS = registry.counter("webchat_global_reconnects_total",
+        "Times that the global connection was established again after it was lost.");
+
+    /**
+     * The time it takes to filter (escape, style, link and add emoticons to) the text of a message.
+     */
+    public static final Histogram FILTER_DURATION = registry.histogram("webchat_filter_duration_seconds",
+        "Time taken to filter the text of a chat message.", Histogram.LOCAL_BOUNDS);
+
+    /**
+     * The time it takes the server to answer a request, by type of request.
+     */
+    public static final Histogram IQ_DURATION = registry.histogram("webchat_xmpp_iq_duration_seconds",
+        "Time taken by the XMPP server to answer a request, by the element of the request.", Histogram.REMOTE_BOUNDS, "type");
+
+    /**
+     * The time it takes a mail server to accept a message that is sent through the
+     * {@link org.jivesoftware.webchat.mail.MailOutbox}, including connecting to it.
+     */
+    public static final Histogram MAIL_SEND_DURATION = registry.histogram("webchat_mail_send_duration_seconds",
+        "Time taken by a mail server to accept a message from the mail outbox.", Histogram.REMOTE_BOUNDS);
+
+    /**
+     * The time from the start of a chat session until it was connected to the server, by workgroup.
+     */
+    public static final Histogram TIME_TO_CONNECT = journeyHistogram("webchat_chat_time_to_connect_seconds",
+        "Time from the start of a chat session until it was connected to the XMPP server, by workgroup.");
+
+    /**
+     * The time from the start of a chat session until it joined the queue of its workgroup, by workgroup.
+     */
+    public static final Histogram TIME_TO_QUEUE = journeyHistogram("webchat_chat_time_to_queue_seconds",
+        "Time from the start of a chat session until it joined the queue of a workgroup, by workgroup.");
+
+    /**
+     * The time from the start of a chat session until an agent accepted it, by workgroup.
+     */
+    public static final Histogram TIME_TO_INVITATION = journeyHistogram("webchat_chat_time_to_invitation_seconds",
+        "Time from the start of a chat session until it was invited to a room by an agent, by workgroup.");
+
+    /**
+     * The time from the start of a chat session until the visitor joined the room of the agent, by workgroup.
+     */
+    public static final Histogram TIME_TO_ROOM = journeyHistogram("webchat_chat_time_to_room_seconds",
+        "Time from the start of a chat session until it joined the room of an agent, by workgroup.");
+
+    /**
+     * The time from the start of a chat session until the first message of an agent, by workgroup.
+     */
+    public static final Histogram TIME_TO_FIRST_AGENT_MESSAGE = journeyHistogram("webchat_chat_time_to_first_agent_message_seconds",
+        "Time from the start of a chat session until the first message of an agent, by workgroup.");
+
+    /**
+     * The time from the start of a chat session until it was closed, by workgroup.
+     */
+    public static final Histogram CHAT_DURATION = journeyHistogram("webchat_chat_duration_seconds",
+        "Time from the start of a chat session until it was closed, by workgroup.");
+
+    static {
+        registry.add(new SampledMetric("webchat_routed_chats_total", "Chat sessions that have been routed to an agent.", "counter") {
+            public double sample() {
+                return ChatManager.getInstance().getRoutedCount();
+            }
+        });
+        registry.add(new SampledMetric("webchat_sessions", "Chat sessions, in any state.", "gauge") {
+            public double sample() {
+                return ChatManager.getInstance().getNumberOfSessions();
+            }
+        });
+        registry.add(new SampledMetric("webchat_log_dropped_total", "Debug and info log messages that were dropped because the log queue was full.", "counter") {
+            public double sample() {
+                return WebLog.getDroppedCount();
+            }
+        });
+        registry.add(new SampledMetric("webchat_log_queue_size", "Log messages that wait to be written.", "gauge") {
+            public double sample() {
+                return WebLog.getQueueSize();
+            }
+        });
+        registry.add(new SampledMetric("webchat_mail_queue_size", "Messages that wait to be sent by the mail outbox, including retries.", "gauge") {
+            public double sample() {
+                return MailOutbox.isStarted() ? MailOutbox.getInstance().getQueueSize() : 0;
+            }
+        });
+        registry.add(new SampledMetric("webchat_mail_sent_total", "Messages that have been sent by the mail outbox.", "counter") {
+            public double sample() {
+                return MailOutbox.isStarted() ? MailOutbox.getInstance().getSentCount() : 0;
+            }
+        });
+        registry.add(new SampledMetric("webchat_mail_retries_total", "Times that the mail outbox tried to send a message again.", "counter") {
+            public double sample() {
+                return MailOutbox.isStarted() ? MailOutbox.getInstance().getRetryCount() : 0;
+            }
+        });
+        registry.add(new SampledMetric("webchat_mail_failed_total", "Messages that the mail outbox could not send, after all attempts.", "counter") {
+            public double sample() {
+                return MailOutbox.isStarted() ? MailOutbox.getInstance().getFailureCount() : 0;
+            }
+        });
+        registry.add(new SampledMetric("webchat_mail_rejected_total", "Messages that were discarded because the mail outbox was full.", "counter") {
+            public double sample() {
+                return MailOutbox.isStarted() ? MailOutbox.getInstance().getRejectedCount() : 0;
+            }
+        });
+        registry.add(new SampledMetric("webchat_global_connection_up", "Whether the global connection is authenticated (1) or not (0).", "gauge") {
+            public double sample() {
+                return ChatManager.getInstance().isConnected() ? 1 : 0;
+            }
+        });
+    }
+
+    private WebChatMetrics() {
+    }
+
+    private static Histogram journeyHistogram(String name, String help) {
+        return registry.histogram(name, help, Histogram.JOURNEY_BOUNDS, "workgroup");
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format.
+     *
+     * @param out the writer.
+     * @throws IOException if writing failed.
+     */
+    public static void write(Writer out) throws IOException {
+        registry.write(out);
+    }
+}
@@ -12,14 +12,18 @@
 
 package org.jivesoftware.webchat.providers;
 
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.actions.WorkgroupChangeListener;
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.util.RefreshingCache;
 import org.jivesoftware.webchat.util.WebLog;
 
-import org.jivesoftware.smack.SmackException.NoResponseException;
-import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.XMPPConnection;
-import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smackx.iqprivate.PrivateDataManager;
+import org.jxmpp.jid.Jid;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -29,6 +33,16 @@ import java.util.Map;
  * Settings settings = new Settings();
  * Map settingsMap = settings.getSettings(con, "demo@workgroup.localhost", "email");
  *
+ * </pre>
+ * The settings that are retrieved through the global connection are cached per workgroup and type of settings, and
+ * refreshed in the background when the workgroup changes, or when they are older than five minutes. The returned
+ * maps cannot be modified, so that they can be shared.
+ * <p>
+ * The only reader of these settings is the {@link org.jivesoftware.webchat.mail.MailOutbox}, which looks up the
+ * email settings of a workgroup for every message it sends. The pages do not read them: whether a workgroup takes
+ * messages, and what its offline page shows, come from the workgroup service itself (see
+ * {@link org.jivesoftware.smackx.workgroup.user.Workgroup#isEmailAvailable()} and
+ * {@link org.jivesoftware.smackx.workgroup.user.Workgroup#getOfflineSettings()}).
  */
 public class Settings {
     /**
@@ -47,6 +61,34 @@ public class Settings {
      */
     public static final String IMAGE_SETTINGS = "images";
 
+    private static final String ELEMENT_NAME = "workgroup_settings";
+
+    /**
+     * The number of milliseconds after which cached settings are refreshed.
+     */
+    private static final long TIME_TO_LIVE = 5 * 60 * 1000;
+
+    private static final RefreshingCache<Key, Map<String, String>> cache = new RefreshingCache<>("Workgroup settings",
+        new RefreshingCache.Loader<Key, Map<String, String>>() {
+            public Map<String, String> load(Key key) throws Exception {
+                if (!ChatManager.getInstance().isConnected()) {
+                    throw new IllegalStateException("Not connected to the server.");
+                }
+                return retrieve(ChatManager.getInstance().getGlobalConnection(), key.workgroup, key.setting);
+            }
+        }, TIME_TO_LIVE);
+
+    static {
+        WorkgroupStatus.addWorkgroupChangeListener(new WorkgroupChangeListener() {
+            public void workgroupUpdated(Jid jid) {
+                final String workgroup = jid.asBareJid().toString();
+                cache.invalidate(new Key(workgroup, OFFLINE_SETTINGS));
+                cache.invalidate(new Key(workgroup, EMAIL_SETTINGS));
+                cache.invalidate(new Key(workgroup, IMAGE_SETTINGS));
+            }
+        });
+    }
+
     private Settings() {
     }
 
@@ -55,25 +97,89 @@ public class Settings {
      * @param con the XMPPConnection to use.
      * @param workgroup the name of the workgroup.
      * @param setting the setting to retrieve.
-     * @return a map of found settings.  If no settings have been found, it will
+     * @return a map of found settings, which cannot be modified.  If no settings could be retrieved, it will
      * return null.
      */
     public static Map<String , String> getSettings(XMPPConnection con, String workgroup, String setting) {
-
         try {
-            PrivateDataManager personalPDM = PrivateDataManager.getInstanceFor(con);
-
-            String namespace = "workgroup:" + workgroup + ":settings:" + setting;
-            String elementName = "workgroup_settings";
-
-            PrivateDataManager.addPrivateDataProvider(elementName, namespace, new SettingsDataProvider());
-            SettingsPrivateData data = (SettingsPrivateData) personalPDM.getPrivateData(elementName, namespace);
-            Map<String , String> map = data.getMap();
-            return map;
+            if (con != ChatManager.getInstance().getGlobalConnection()) {
+                return retrieve(con, workgroup, setting);
+            }
+            return cache.get(new Key(workgroup, setting));
         }
-        catch (XMPPException | NoResponseException | NotConnectedException | InterruptedException e) {
+        catch (Exception e) {
             WebLog.logError("Could not load private data:", e);
         }
         return null;
     }
+
+    /**
+     * Returns the number of settings that are cached.
+     *
+     * @return the number of cached settings.
+     */
+    public static int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of times that cached settings were used.
+     *
+     * @return the number of cache hits.
+     */
+    public static long getCacheHitCount() {
+        return cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of times that settings had to be retrieved before they could be used.
+     *
+     * @return the number of cache misses.
+     */
+    public static long getCacheMissCount() {
+        return cache.getMissCount();
+    }
+
+    /**
+     * Retrieves settings from the private data of a workgroup.
+     */
+    private static Map<String, String> retrieve(XMPPConnection con, String workgroup, String setting) throws Exception {
+        PrivateDataManager personalPDM = PrivateDataManager.getInstanceFor(con);
+
+        String namespace = "workgroup:" + workgroup + ":settings:" + setting;
+
+        PrivateDataManager.addPrivateDataProvider(ELEMENT_NAME, namespace, new SettingsDataProvider());
+        SettingsPrivateData data = (SettingsPrivateData) personalPDM.getPrivateData(ELEMENT_NAME, namespace);
+        Map<String , String> map = data.getMap();
+        return map != null ? Collections.unmodifiableMap(new HashMap<>(map)) : Collections.<String, String>emptyMap();
+    }
+
+    /**
+     * A workgroup and a type of settings.
+     */
+    private static final class Key {
+        private final String workgroup;
+        private final String setting;
+
+        private Key(String workgroup, String setting) {
+            this.workgroup = workgroup;
+            this.setting = setting;
+        }
+
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) object;
+            return workgroup.equals(key.workgroup) && setting.equals(key.setting);
+        }
+
+        public int hashCode() {
+            return 31 * workgroup.hashCode() + setting.hashCode();
+        }
+
+        public String toString() {
+            return setting + " settings of " + workgroup;
+        }
+    }
 }
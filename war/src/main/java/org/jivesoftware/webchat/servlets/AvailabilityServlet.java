@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.servlets;
+
+import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.actions.AgentRosterManager;
+import org.jivesoftware.webchat.actions.WorkgroupDirectory;
+import org.jivesoftware.webchat.actions.WorkgroupSnapshot;
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.util.ModelUtil;
+import org.jivesoftware.webchat.util.StringUtils;
+
+import org.jivesoftware.smack.packet.Presence;
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.stringprep.XmppStringprepException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the availability of any number of workgroups and agents in one JSON document. Pages that show a
+ * "chat now" button for many workgroups can use this instead of requesting a status image for every button.
+ * <p>
+ * Workgroups and agents are passed as (repeated, or comma separated) <tt>workgroup</tt> and <tt>agent</tt>
+ * parameters, for example <tt>availability?workgroup=sales@workgroup.example.org,support@workgroup.example.org</tt>.
+ * The response looks like this:
+ * <pre>
+ * {"workgroups":{"sales@workgroup.example.org":true,"support@workgroup.example.org":false},"agents":{}}
+ * </pre>
+ * Responses can be cached for a short while, and carry an entity tag so that clients can revalidate them cheaply.
+ * <p>
+ * As this can be requested by any page, workgroups are answered from the availability that is already known. The
+ * server is only asked about workgroups that are listed by the {@link WorkgroupDirectory}, and about no more than
+ * {@link #MAX_QUERIES} of them per request; other workgroups are reported as unavailable.
+ */
+public class AvailabilityServlet extends HttpServlet {
+    private static final String WORKGROUP = "workgroup";
+    private static final String AGENT = "agent";
+
+    /**
+     * The maximum number of workgroups and agents (each) that can be requested at once.
+     */
+    private static final int MAX_ITEMS = 100;
+
+    /**
+     * The maximum number of workgroups of which the availability is requested from the server per request.
+     */
+    private static final int MAX_QUERIES = 5;
+
+    /**
+     * The number of seconds that clients and proxies may cache a response.
+     */
+    private static final int MAX_AGE = 10;
+
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        final ChatManager chatManager = ChatManager.getInstance();
+        if (!chatManager.isConnected()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        final Set<String> workgroupNames = getValues(request, WORKGROUP);
+        final Set<String> agentNames = getValues(request, AGENT);
+        if (workgroupNames.size() > MAX_ITEMS || agentNames.size() > MAX_ITEMS) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No more than " + MAX_ITEMS + " workgroups and agents can be requested at once.");
+            return;
+        }
+
+        final Map<String, Boolean> workgroups = new LinkedHashMap<>();
+        int queries = 0;
+        for (String workgroupName : workgroupNames) {
+            boolean isOnline = false;
+            try {
+                final Jid workgroupJid = JidCreate.bareFrom(workgroupName);
+                final WorkgroupSnapshot snapshot = WorkgroupStatus.getSnapshot(workgroupJid);
+                if (snapshot != null) {
+                    isOnline = snapshot.isAvailable();
+                }
+                else if (queries < MAX_QUERIES && WorkgroupDirectory.getInstance().contains(workgroupJid)) {
+                    queries++;
+                    isOnline = WorkgroupStatus.isOnline(workgroupJid.toString());
+                }
+            }
+            catch (XmppStringprepException e) {
+                // An invalid address is never available.
+            }
+            workgroups.put(workgroupName, isOnline);
+        }
+
+        final Map<String, Boolean> agents = new LinkedHashMap<>();
+        if (!agentNames.isEmpty()) {
+            final AgentRosterManager rosterManager = AgentRosterManager.getInstance();
+            for (String agentName : agentNames) {
+                boolean isOnline = false;
+                try {
+                    final BareJid agentJid = JidCreate.bareFrom(agentName);
+                    final Presence presence = rosterManager.getPresence(agentJid);
+                    isOnline = presence != null && presence.getType() == Presence.Type.available;
+                }
+                catch (XmppStringprepException e) {
+                    // An invalid address is never available.
+                }
+                agents.put(agentName, isOnline);
+            }
+        }
+
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"workgroups\":");
+        appendObject(json, workgroups);
+        json.append(",\"agents\":");
+        appendObject(json, agents);
+        json.append('}');
+
+        final byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        final String etag = "\"" + Integer.toHexString(json.toString().hashCode()) + "\"";
+
+        response.setHeader("Cache-Control", "public, max-age=" + MAX_AGE);
+        response.setHeader("ETag", etag);
+        response.setHeader("Access-Control-Allow-Origin", "*");
+
+        if (StringUtils.matchesETag(etag, request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.setContentLength(body.length);
+        final OutputStream out = response.getOutputStream();
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * Returns the distinct values of a parameter, which can be repeated, and can hold comma separated values.
+     */
+    private static Set<String> getValues(HttpServletRequest request, String name) {
+        final Set<String> values = new LinkedHashSet<>();
+        final String[] parameters = request.getParameterValues(name);
+        if (parameters != null) {
+            for (String parameter : parameters) {
+                for (String value : parameter.split(",")) {
+                    if (ModelUtil.hasLength(value.trim())) {
+                        values.add(value.trim());
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private static void appendObject(StringBuilder json, Map<String, Boolean> values) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Boolean> entry : values.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(StringUtils.escapeForJSON(entry.getKey())).append('"');
+            json.append(':').append(entry.getValue());
+        }
+        json.append('}');
+    }
+}
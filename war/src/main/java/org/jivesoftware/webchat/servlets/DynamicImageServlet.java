@@ -12,17 +12,12 @@
 
 package org.jivesoftware.webchat.servlets;
 
-import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.actions.AgentRosterManager;
 import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.util.CachedImage;
 import org.jivesoftware.webchat.util.SettingsManager;
-import org.jivesoftware.webchat.util.WebLog;
 
-import org.jivesoftware.smack.SmackException.NoResponseException;
-import org.jivesoftware.smack.SmackException.NotConnectedException;
-import org.jivesoftware.smack.SmackException.NotLoggedInException;
-import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.packet.Presence;
-import org.jivesoftware.smack.roster.Roster;
 import org.jxmpp.jid.BareJid;
 import org.jxmpp.jid.Jid;
 import org.jxmpp.jid.impl.JidCreate;
@@ -67,40 +62,21 @@ public class DynamicImageServlet extends HttpServlet {
     }
 
     private void getImage(BareJid requestAgent, Jid workgroup, HttpServletRequest request, HttpServletResponse response) {
-        ChatManager chatManager = ChatManager.getInstance();
-
-        try {
-
-          boolean isOnline = WorkgroupStatus.isOnline(workgroup.toString());
-          final SettingsManager imageManager = SettingsManager.getInstance();
-  
-          final Roster roster = Roster.getInstanceFor(chatManager.getGlobalConnection());
-          final Presence presence = roster.getPresence(requestAgent);
-  
-          isOnline = isOnline && presence != null && presence.getType() == Presence.Type.available;
-  
-          if (!isOnline) {
-              Object o = roster.getEntry(requestAgent);
-              if (o == null) {
-                  roster.createEntry(requestAgent, requestAgent.toString(), null);
-            }
-          }
-
-          byte[] image;
-          if (isOnline) {
-              image = imageManager.getImage("personalonline", workgroup, getServletContext());
-          }
-          else {
-              image = imageManager.getImage("personaloffline", workgroup, getServletContext());
-          }
-  
-          imageManager.writeBytesToStream(image, response);
-        }
-        catch (XMPPException | NotLoggedInException | NoResponseException | NotConnectedException | InterruptedException e) {
-          //TODO maybe better to throw
-           WebLog.logError("Error creating new roster entry:", e);
+        boolean isOnline = WorkgroupStatus.isOnline(workgroup.toString());
+        final SettingsManager imageManager = SettingsManager.getInstance();
+
+        final AgentRosterManager rosterManager = AgentRosterManager.getInstance();
+        final Presence presence = rosterManager.getPresence(requestAgent);
+
+        isOnline = isOnline && presence != null && presence.getType() == Presence.Type.available;
+
+        if (!isOnline) {
+            rosterManager.subscribe(requestAgent);
         }
 
+        CachedImage image = imageManager.getCachedImage(isOnline ? "personalonline" : "personaloffline", workgroup, getServletContext());
+        imageManager.writeImage(image, SettingsManager.CACHE_STATUS, request, response);
+
     }
 
 
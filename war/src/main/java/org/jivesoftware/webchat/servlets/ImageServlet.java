@@ -12,6 +12,7 @@
 
 package org.jivesoftware.webchat.servlets;
 
+import org.jivesoftware.webchat.util.CachedImage;
 import org.jivesoftware.webchat.util.SettingsManager;
 
 import org.jxmpp.jid.Jid;
@@ -45,12 +46,7 @@ public class ImageServlet extends HttpServlet {
 
         final SettingsManager imageManager = SettingsManager.getInstance();
 
-        byte[] imageBytes = imageManager.getImage(imageName, workgroupJid, getServletContext());
-        if (imageBytes == null) {
-            getServletContext().log(imageName + " for " + workgroupName + " is null.");
-            return;
-        }
-
-        imageManager.writeBytesToStream(imageBytes, response);
+        CachedImage image = imageManager.getCachedImage(imageName, workgroupJid, getServletContext());
+        imageManager.writeImage(image, SettingsManager.CACHE_STATIC, request, response);
     }
 }
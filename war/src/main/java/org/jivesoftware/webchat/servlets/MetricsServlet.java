@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.servlets;
+
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the metrics of the web chat (see {@link WebChatMetrics}) in the Prometheus text format, to be scraped by
+ * a Prometheus server or any other collector that understands the format.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    /**
+     * The content type of version 0.0.4 of the Prometheus text format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-cache");
+
+        final Writer out = response.getWriter();
+        WebChatMetrics.write(out);
+        out.flush();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.servlets;
+
+import org.jivesoftware.webchat.util.StaticAsset;
+import org.jivesoftware.webchat.util.StaticAssets;
+import org.jivesoftware.webchat.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the scripts and style sheets of the web application. The best precompressed variant of an asset that
+ * the browser accepts is served straight from its memory-mapped file (see {@link StaticAsset}).
+ * <p>
+ * Requests for a versioned URL (see {@link StaticAssets#getURL}) are marked as immutable, so that browsers do not
+ * ask for the asset again for a year. All other requests must be revalidated, using the entity tag of the asset.
+ */
+public class StaticAssetServlet extends HttpServlet {
+
+    private static final String VERSION = "v";
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "no-cache";
+
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        String path = request.getServletPath();
+        if (request.getPathInfo() != null) {
+            path += request.getPathInfo();
+        }
+        final String upperCasePath = path.toUpperCase(Locale.ENGLISH);
+        if (upperCasePath.startsWith("/WEB-INF") || upperCasePath.startsWith("/META-INF")) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        final StaticAsset asset = StaticAssets.getInstance(getServletContext()).getAsset(path);
+        if (asset == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        final String encoding = asset.selectEncoding(request.getHeader("Accept-Encoding"));
+        final String etag = asset.getETag(encoding);
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", asset.getHash().equals(request.getParameter(VERSION)) ? CACHE_IMMUTABLE : CACHE_REVALIDATE);
+
+        if (StringUtils.matchesETag(etag, request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        final ByteBuffer content = asset.getContent(encoding);
+        response.setContentType(asset.getContentType());
+        if (!StaticAsset.IDENTITY.equals(encoding)) {
+            response.setHeader("Content-Encoding", encoding);
+        }
+        response.setContentLength(content.remaining());
+
+        // Containers whose output stream is a channel (such as Jetty) write the mapped file without copying it.
+        final OutputStream out = response.getOutputStream();
+        final WritableByteChannel channel = out instanceof WritableByteChannel ? (WritableByteChannel) out : Channels.newChannel(out);
+        while (content.hasRemaining()) {
+            channel.write(content);
+        }
+        out.flush();
+    }
+}
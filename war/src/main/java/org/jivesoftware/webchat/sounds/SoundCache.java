@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.sounds;
+
+import org.jivesoftware.webchat.actions.WorkgroupChangeListener;
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.util.StringUtils;
+
+import org.jivesoftware.smackx.workgroup.settings.SoundSettings;
+import org.jivesoftware.smackx.workgroup.user.Workgroup;
+import org.jxmpp.jid.Jid;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps the notification sounds of each workgroup, so that they are retrieved from the server once, instead of
+ * for every request. Concurrent requests for the sounds of a workgroup that are not cached yet share a single
+ * retrieval. The sounds of a workgroup are dropped when the workgroup is reconfigured.
+ */
+final class SoundCache implements WorkgroupChangeListener {
+
+    private static final SoundCache INSTANCE = new SoundCache();
+
+    private final ConcurrentMap<Jid, FutureTask<Sounds>> sounds = new ConcurrentHashMap<>();
+
+    static SoundCache getInstance() {
+        return INSTANCE;
+    }
+
+    private SoundCache() {
+        WorkgroupStatus.addWorkgroupChangeListener(this);
+    }
+
+    /**
+     * Returns the sounds of a workgroup, retrieving them if needed.
+     *
+     * @param workgroupJid the workgroup.
+     * @return the sounds of the workgroup.
+     * @throws Exception if the sounds could not be retrieved.
+     */
+    Sounds getSounds(final Jid workgroupJid) throws Exception {
+        final Jid key = workgroupJid.asBareJid();
+        FutureTask<Sounds> task = sounds.get(key);
+        if (task == null) {
+            final FutureTask<Sounds> newTask = new FutureTask<>(new Callable<Sounds>() {
+                public Sounds call() throws Exception {
+                    Workgroup workgroup = WorkgroupStatus.getWorkgroup(workgroupJid);
+                    return new Sounds(workgroup.getSoundSettings());
+                }
+            });
+            task = sounds.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            }
+        }
+
+        try {
+            return task.get();
+        }
+        catch (ExecutionException e) {
+            // Do not cache failures; the next request tries again.
+            sounds.remove(key, task);
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    public void workgroupUpdated(Jid jid) {
+        sounds.remove(jid.asBareJid());
+    }
+
+    /**
+     * The notification sounds of a workgroup.
+     */
+    static final class Sounds {
+        private final Sound incoming;
+        private final Sound outgoing;
+
+        private Sounds(SoundSettings settings) {
+            incoming = new Sound(settings.getIncomingSoundBytes());
+            outgoing = new Sound(settings.getOutgoingSoundBytes());
+        }
+
+        Sound getIncoming() {
+            return incoming;
+        }
+
+        Sound getOutgoing() {
+            return outgoing;
+        }
+    }
+
+    /**
+     * A sound, and its entity tag.
+     */
+    static final class Sound {
+        private final byte[] bytes;
+        private final String etag;
+
+        private Sound(byte[] bytes) {
+            this.bytes = bytes != null ? bytes : new byte[0];
+            this.etag = StringUtils.createETag(this.bytes);
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        String getETag() {
+            return etag;
+        }
+    }
+}
@@ -1,13 +1,8 @@
 package org.jivesoftware.webchat.sounds;
 
-import org.jivesoftware.webchat.ChatManager;
+import org.jivesoftware.webchat.util.StringUtils;
 import org.jivesoftware.webchat.util.WebLog;
 
-import org.jivesoftware.smack.SmackException.NoResponseException;
-import org.jivesoftware.smack.SmackException.NotConnectedException;
-import org.jivesoftware.smack.XMPPException;
-import org.jivesoftware.smackx.workgroup.settings.SoundSettings;
-import org.jivesoftware.smackx.workgroup.user.Workgroup;
 import org.jxmpp.jid.Jid;
 import org.jxmpp.jid.impl.JidCreate;
 
@@ -15,12 +10,22 @@ import java.io.IOException;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Serves the notification sounds of a workgroup. Sounds are cached (see {@link SoundCache}), and
+ * can be requested partially using a (single) byte range, which is what media players do.
+ */
 public class SoundServlet extends HttpServlet {
 
+    /**
+     * Sounds only change when the workgroup is reconfigured.
+     */
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+
     public void init(ServletConfig servletConfig) throws ServletException {
         super.init(servletConfig);
     }
@@ -34,19 +39,116 @@ public class SoundServlet extends HttpServlet {
         String action = request.getParameter("action");
         Jid workgroupJid = JidCreate.from(workgroupName);
 
-        Workgroup workgroup = new Workgroup(workgroupJid, ChatManager.getInstance().getGlobalConnection());
+        SoundCache.Sounds sounds;
+        try {
+            sounds = SoundCache.getInstance().getSounds(workgroupJid);
+        } catch (Exception e) {
+            WebLog.log("Could not load sound settings for workgroup " + workgroupName);
+            return;
+        }
+
+        response.setContentType("audio/wav");
+        if (action != null) {
+            if ("incoming".equals(action.trim())) {
+                writeSound(sounds.getIncoming(), request, response);
+            } else if ("outgoing".equals(action.trim())) {
+                writeSound(sounds.getOutgoing(), request, response);
+            }
+        }
+    }
+
+    /**
+     * Writes a sound, or the requested range of it.
+     */
+    private static void writeSound(SoundCache.Sound sound, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final byte[] bytes = sound.getBytes();
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", sound.getETag());
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+
+        if (StringUtils.matchesETag(sound.getETag(), request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // A range only applies to the version of the sound that the client has (if it says which one).
+        String range = request.getHeader("Range");
+        final String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.trim().equals(sound.getETag())) {
+            range = null;
+        }
+
+        int start = 0;
+        int end = bytes.length - 1;
+        if (range != null) {
+            final long[] bounds = parseRange(range, bytes.length);
+            if (bounds == null) {
+                response.setHeader("Content-Range", "bytes */" + bytes.length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = (int) bounds[0];
+                end = (int) bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + bytes.length);
+            }
+        }
+
+        final int length = end - start + 1;
+        response.setContentLength(length);
+        final ServletOutputStream out = response.getOutputStream();
+        out.write(bytes, start, length);
+        out.flush();
+    }
+
+    /**
+     * Parses the value of a Range header.
+     *
+     * @param range  the value of the Range header.
+     * @param length the length of the content.
+     * @return the first and last (inclusive) position of the range; an empty array if the whole
+     *         content should be sent (the header is malformed, or asks for multiple ranges); or
+     *         null if the range cannot be satisfied.
+     */
+    static long[] parseRange(String range, int length) {
+        range = range.trim();
+        if (!range.startsWith("bytes=") || range.indexOf(',') != -1) {
+            return new long[0];
+        }
+        final String spec = range.substring("bytes=".length()).trim();
+        final int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return new long[0];
+        }
+
         try {
-            SoundSettings soundSettings = workgroup.getSoundSettings();
-            response.setContentType("audio/wav");
-            if (action != null) {
-                if ("incoming".equals(action.trim())) {
-                    response.getOutputStream().write(soundSettings.getIncomingSoundBytes());
-                } else if ("outgoing".equals(action.trim())) {
-                    response.getOutputStream().write(soundSettings.getOutgoingSoundBytes());
+            long start;
+            long end;
+            if (dash == 0) {
+                // The last n bytes.
+                final long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix == 0) {
+                    return null;
                 }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
             }
-        } catch (XMPPException | NoResponseException | NotConnectedException | InterruptedException e) {
-            WebLog.log("Could not load sound settings for workgroup " + workgroupName);
+            else {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                final String last = spec.substring(dash + 1).trim();
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                if (end < start) {
+                    return new long[0];
+                }
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new long[] {start, end};
+        }
+        catch (NumberFormatException e) {
+            return new long[0];
         }
     }
 }
@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that writes to a file on a thread of its own, so that logging never waits for the disk.
+ * <p>
+ * Records are put in a bounded queue, from which the writer thread takes them in batches; the file is flushed once
+ * per batch rather than once per record. When the queue is full, records below {@link Level#WARNING} are dropped
+ * (and counted, see {@link #getDroppedCount()}), while warnings and errors wait for room in the queue.
+ * <p>
+ * The file is rotated when it grows beyond a maximum size, and at midnight: <tt>webchat-error.log</tt> is renamed to
+ * <tt>webchat-error.log.1</tt>, which is renamed to <tt>webchat-error.log.2</tt>, and so on, up to a maximum number
+ * of old files.
+ */
+final class AsyncLogHandler extends Handler {
+
+    /**
+     * The maximum number of records in a batch.
+     */
+    private static final int BATCH_SIZE = 512;
+
+    /**
+     * The number of milliseconds that the writer thread waits for records before it checks whether the file was
+     * changed or has to be rotated.
+     */
+    private static final long POLL_INTERVAL = 1000;
+
+    private final BlockingQueue<LogRecord> queue;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final Thread writerThread;
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * The file to log to. The writer thread opens it, or reopens it after it was changed, before writing the next
+     * batch.
+     */
+    private volatile File file;
+
+    private volatile boolean closed;
+
+    // The following fields are guarded by this handler.
+
+    private File openFile;
+    private Writer writer;
+    private long fileSize;
+    private long nextRotation;
+
+    /**
+     * Creates a handler, and starts its writer thread. The file is not created until the first record is written.
+     *
+     * @param file        the file to log to.
+     * @param queueSize   the maximum number of records that wait to be written.
+     * @param maxFileSize the size above which the file is rotated, in characters (which is close enough to bytes
+     *                    for log files).
+     * @param maxFiles    the number of rotated files that are kept.
+     */
+    AsyncLogHandler(File file, int queueSize, long maxFileSize, int maxFiles) {
+        this.file = file;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+
+        writerThread = new Thread(new Runnable() {
+            public void run() {
+                writeRecords();
+            }
+        }, "WebLog writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Changes the file to log to. The records that have not been written yet are written to the new file.
+     *
+     * @param file the file to log to.
+     */
+    void setFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the number of records that were dropped because the queue was full.
+     *
+     * @return the number of dropped records.
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of records that wait to be written.
+     *
+     * @return the number of waiting records.
+     */
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        // The source of a record is inferred from the stack of the thread that logs it, so this cannot be left to the
+        // writer thread.
+        record.getSourceMethodName();
+        if (closed) {
+            // Logged while the application shuts down; there is no writer thread to hand this to.
+            final List<LogRecord> batch = new ArrayList<>(1);
+            batch.add(record);
+            synchronized (this) {
+                write(batch);
+                closeFile();
+            }
+            return;
+        }
+        if (queue.offer(record)) {
+            return;
+        }
+        if (record.getLevel().intValue() < Level.WARNING.intValue()) {
+            dropped.increment();
+            return;
+        }
+        try {
+            queue.put(record);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Flushes the file. Records that are still queued are written (and flushed) by the writer thread shortly.
+     */
+    public synchronized void flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            }
+            catch (IOException e) {
+                reportError(null, e, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * Writes the records that are waiting, stops the writer thread and closes the file. Records that are published
+     * afterwards are written on the thread that publishes them.
+     */
+    public void close() {
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final List<LogRecord> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        write(batch);
+
+        synchronized (this) {
+            closeFile();
+        }
+    }
+
+    private void writeRecords() {
+        final List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+        while (!closed) {
+            try {
+                final LogRecord first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                }
+            }
+            catch (InterruptedException e) {
+                // Closed; the records that are left are written by close().
+                break;
+            }
+            try {
+                write(batch);
+            }
+            catch (RuntimeException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a batch of records, and flushes the file. With an empty batch this only rotates or reopens the file if
+     * needed.
+     */
+    private synchronized void write(List<LogRecord> batch) {
+        try {
+            final long now = System.currentTimeMillis();
+            if (openFile != null && !openFile.equals(file)) {
+                closeFile();
+            }
+            else if (openFile != null && now >= nextRotation) {
+                final File rotated = openFile;
+                closeFile();
+                rotate(rotated);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (writer == null) {
+                openFile();
+            }
+            for (LogRecord record : batch) {
+                final String formatted;
+                try {
+                    formatted = getFormatter().format(record);
+                }
+                catch (RuntimeException e) {
+                    reportError(null, e, ErrorManager.FORMAT_FAILURE);
+                    continue;
+                }
+                writer.write(formatted);
+                fileSize += formatted.length();
+                if (fileSize >= maxFileSize) {
+                    final File rotated = openFile;
+                    closeFile();
+                    rotate(rotated);
+                    openFile();
+                }
+            }
+            writer.flush();
+        }
+        catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        final File target = file;
+        final File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target, true), StandardCharsets.UTF_8));
+        openFile = target;
+        fileSize = target.length();
+        nextRotation = nextMidnight();
+    }
+
+    private void closeFile() {
+        if (writer != null) {
+            try {
+                writer.close();
+            }
+            catch (IOException e) {
+                reportError(null, e, ErrorManager.CLOSE_FAILURE);
+            }
+        }
+        writer = null;
+        openFile = null;
+    }
+
+    /**
+     * Renames the file to <tt>.1</tt>, after renaming the files that were rotated before to the next number, and
+     * deleting the oldest.
+     */
+    private void rotate(File target) {
+        if (!target.exists() || target.length() == 0) {
+            return;
+        }
+        final File oldest = new File(target.getPath() + "." + maxFiles);
+        if (oldest.exists() && !oldest.delete()) {
+            reportError("Unable to delete " + oldest, null, ErrorManager.GENERIC_FAILURE);
+        }
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            final File rotated = new File(target.getPath() + "." + i);
+            if (rotated.exists()) {
+                rotated.renameTo(new File(target.getPath() + "." + (i + 1)));
+            }
+        }
+        if (!target.renameTo(new File(target.getPath() + ".1"))) {
+            reportError("Unable to rotate " + target, null, ErrorManager.GENERIC_FAILURE);
+        }
+    }
+
+    private static long nextMidnight() {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+}
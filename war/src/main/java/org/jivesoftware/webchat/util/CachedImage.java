@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+/**
+ * A decoded image, along with everything that is needed to serve it: its content type (determined from the image
+ * data itself) and a strong entity tag (a digest of the image data). Instances are immutable, and are cached by
+ * {@link SettingsManager}.
+ */
+public final class CachedImage {
+
+    /**
+     * The content type that was used for all images before content types were determined.
+     */
+    private static final String DEFAULT_CONTENT_TYPE = "image/jpeg";
+
+    private final byte[] bytes;
+    private final String contentType;
+    private final String etag;
+
+    /**
+     * Creates an image. The image data should not be modified afterwards.
+     *
+     * @param bytes the image data.
+     */
+    public CachedImage(byte[] bytes) {
+        this.bytes = bytes;
+        this.contentType = sniffContentType(bytes);
+        this.etag = StringUtils.createETag(bytes);
+    }
+
+    /**
+     * Returns the image data. The returned array is shared, and must not be modified.
+     *
+     * @return the image data.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the content type of the image, as determined from its first bytes.
+     *
+     * @return the content type of the image.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the (quoted) entity tag of the image.
+     *
+     * @return the entity tag of the image.
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * Returns true if the entity tag of this image is listed in the value of an If-None-Match header.
+     *
+     * @param ifNoneMatch the value of the If-None-Match header (can be null).
+     * @return true if the client already has this image.
+     */
+    public boolean matches(String ifNoneMatch) {
+        return StringUtils.matchesETag(etag, ifNoneMatch);
+    }
+
+    /**
+     * Determines the content type of an image from its signature.
+     *
+     * @param bytes the image data.
+     * @return the content type.
+     */
+    static String sniffContentType(byte[] bytes) {
+        if (startsWith(bytes, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(bytes, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(bytes, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(bytes, 'B', 'M')) {
+            return "image/bmp";
+        }
+        return DEFAULT_CONTENT_TYPE;
+    }
+
+    private static boolean startsWith(byte[] bytes, int... signature) {
+        if (bytes.length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((bytes[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+import org.jivesoftware.smackx.xdata.FormField;
+import org.jivesoftware.smackx.xdata.FormField.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The HTML of a form field, rendered once. The only parts of a field that differ between requests are the values
+ * that are taken from the cookies of the visitor. These are left open in the template, and are filled in by
+ * {@link #render(HttpServletRequest)}.
+ */
+final class FormFieldTemplate {
+
+    private final String variable;
+
+    // The static HTML. There is one more part than there are slots.
+    private final String[] parts;
+
+    // For each slot: null if the slot holds a value attribute, otherwise the option value that is selected by it.
+    private final String[] slots;
+
+    private final int length;
+
+    private FormFieldTemplate(String variable, List<String> parts, List<String> slots) {
+        this.variable = variable;
+        this.parts = parts.toArray(new String[parts.size()]);
+        this.slots = slots.toArray(new String[slots.size()]);
+        int length = 0;
+        for (String part : parts) {
+            length += part.length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * Renders the field for a request.
+     *
+     * @param request the request, which provides the cookies of the visitor.
+     * @return the HTML of the field.
+     */
+    String render(HttpServletRequest request) {
+        if (slots.length == 0) {
+            return parts[0];
+        }
+
+        final String cookieValue = FormUtils.getCookieValueForField(variable, request);
+        final StringBuilder builder = new StringBuilder(length + 64);
+        builder.append(parts[0]);
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] == null) {
+                if (ModelUtil.hasLength(cookieValue)) {
+                    builder.append("value=\"").append(StringUtils.escapeHTMLTags(cookieValue)).append('"');
+                }
+            }
+            else if (slots[i].equals(ModelUtil.emptyStringIfNull(cookieValue))) {
+                builder.append("selected");
+            }
+            builder.append(parts[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Renders the static parts of a form field.
+     *
+     * @param formField the form field.
+     * @return the template of the field.
+     */
+    static FormFieldTemplate compile(FormField formField) {
+        final Compiler compiler = new Compiler();
+        if (formField.getType().equals(FormField.Type.text_single)) {
+            compiler.append("<input type=\"text\" name=\"").append(formField.getVariable()).append("\" ");
+            compiler.valueSlot();
+            compiler.append(" style=\"width:75%\">");
+        }
+        else if (formField.getType().equals(FormField.Type.text_multi)) {
+            compiler.append("<textarea name=\"").append(formField.getVariable()).append("\" cols=\"30\" rows=\"3\">");
+            compiler.append("</textarea>");
+        }
+        else if (formField.getType().equals(FormField.Type.list_single)) {
+            compiler.append("<select name=\"").append(formField.getVariable()).append("\" >");
+            for (Option option : formField.getOptions()) {
+                compiler.append("<option value=\"").append(StringUtils.escapeHTMLTags(option.getValue())).append("\" ");
+                compiler.selectedSlot(option.getValue());
+                compiler.append(">").append(option.getLabel()).append("</option>");
+            }
+            compiler.append("</select>");
+        }
+        else if (formField.getType().equals(FormField.Type.bool)) {
+            int counter = 0;
+            for (Option option : formField.getOptions()) {
+                String value = option.getLabel();
+                compiler.append("<input type=\"checkbox\" value=\"").append(value).append("\" name=\"").append(formField.getVariable()).append(String.valueOf(counter)).append("\">");
+                compiler.append("&nbsp;");
+                compiler.append(StringUtils.escapeHTMLTags(value));
+                compiler.append("<br/>");
+                counter++;
+            }
+        }
+        else if (formField.getType().equals(FormField.Type.list_multi)) {
+            for (Option option : formField.getOptions()) {
+                String value = option.getLabel();
+                compiler.append("<input type=\"radio\" value=\"").append(value).append("\" name=\"").append(formField.getVariable()).append("\">");
+                compiler.append("&nbsp;");
+                compiler.append(StringUtils.escapeHTMLTags(value));
+                compiler.append("<br/>");
+            }
+        }
+        else if (formField.getType().equals(FormField.Type.hidden)) {
+            String value = "";
+            for (String item : formField.getValues()) {
+                value = " value=\"" + StringUtils.escapeHTMLTags(item) + "\"";
+            }
+            compiler.append("<input type=\"hidden\" name=\"").append(formField.getVariable()).append("\" ").append(value).append(" />");
+        }
+        else if (formField.getType().equals(FormField.Type.text_private)) {
+            compiler.append("<input type=\"password\" name=\"").append(formField.getVariable()).append("\" ");
+            compiler.valueSlot();
+            compiler.append(" style=\"width:75%\">");
+        }
+        return compiler.toTemplate(formField.getVariable());
+    }
+
+    /**
+     * Collects the static parts and slots of a template.
+     */
+    private static final class Compiler {
+        private final List<String> parts = new ArrayList<>();
+        private final List<String> slots = new ArrayList<>();
+        private final StringBuilder current = new StringBuilder();
+
+        Compiler append(String text) {
+            current.append(text);
+            return this;
+        }
+
+        void valueSlot() {
+            selectedSlot(null);
+        }
+
+        void selectedSlot(String optionValue) {
+            parts.add(current.toString());
+            current.setLength(0);
+            slots.add(optionValue);
+        }
+
+        FormFieldTemplate toTemplate(String variable) {
+            parts.add(current.toString());
+            return new FormFieldTemplate(variable, parts, slots);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+import org.jivesoftware.webchat.actions.WorkgroupChangeListener;
+import org.jivesoftware.webchat.actions.WorkgroupStatus;
+
+import org.jivesoftware.smackx.xdata.FormField;
+import org.jxmpp.jid.Jid;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the rendered fields of the form of each workgroup. The templates of a workgroup belong to one version of
+ * its form: the last modification date that is announced by the workgroup (see {@link WorkgroupStatus#CHANGE_MAP}).
+ * They are discarded when a newer version is announced.
+ */
+final class FormTemplateCache implements WorkgroupChangeListener {
+
+    private static final FormTemplateCache INSTANCE = new FormTemplateCache();
+
+    private final ConcurrentMap<Jid, Templates> templates = new ConcurrentHashMap<>();
+
+    static FormTemplateCache getInstance() {
+        return INSTANCE;
+    }
+
+    private FormTemplateCache() {
+        WorkgroupStatus.addWorkgroupChangeListener(this);
+    }
+
+    /**
+     * Returns the template of a field of the form of a workgroup, rendering it if needed.
+     *
+     * @param workgroupJid the workgroup.
+     * @param formField    the field.
+     * @return the template of the field.
+     */
+    FormFieldTemplate getTemplate(Jid workgroupJid, FormField formField) {
+        if (formField.getVariable() == null) {
+            return FormFieldTemplate.compile(formField);
+        }
+
+        final Jid key = workgroupJid.asBareJid();
+        final long version = WorkgroupStatus.getLastModified(key);
+        Templates current = templates.get(key);
+        if (current == null || current.version != version) {
+            current = new Templates(version);
+            templates.put(key, current);
+        }
+
+        FormFieldTemplate template = current.fields.get(formField.getVariable());
+        if (template == null) {
+            template = FormFieldTemplate.compile(formField);
+            final FormFieldTemplate existing = current.fields.putIfAbsent(formField.getVariable(), template);
+            if (existing != null) {
+                template = existing;
+            }
+        }
+        return template;
+    }
+
+    public void workgroupUpdated(Jid jid) {
+        templates.remove(jid.asBareJid());
+    }
+
+    /**
+     * The templates of all fields of one version of a form.
+     */
+    private static final class Templates {
+        private final long version;
+        private final ConcurrentMap<String, FormFieldTemplate> fields = new ConcurrentHashMap<>();
+
+        private Templates(long version) {
+            this.version = version;
+        }
+    }
+}
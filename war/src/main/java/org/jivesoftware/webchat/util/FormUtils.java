@@ -12,7 +12,7 @@
 package org.jivesoftware.webchat.util;
 
 import org.jivesoftware.smackx.xdata.FormField;
-import org.jivesoftware.smackx.xdata.FormField.Option;
+import org.jxmpp.jid.Jid;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
@@ -27,71 +27,22 @@ public class FormUtils {
     private FormUtils() {
     }
 
-    public static String createAnswers(FormField formField, HttpServletRequest request) {
-        final StringBuffer builder = new StringBuffer();
-        if (formField.getType().equals(FormField.Type.text_single)) {
-            String cookieValue = getCookieValueForField(formField.getVariable(), request);
-            String insertValue = "";
-            if(ModelUtil.hasLength(cookieValue)){
-                insertValue = "value=\""+StringUtils.escapeHTMLTags(cookieValue)+"\"";
-            }
-            builder.append("<input type=\"text\" name=\"" + formField.getVariable() + "\" "+insertValue+" style=\"width:75%\">");
-        }
-        else if (formField.getType().equals(FormField.Type.text_multi)) {
-            builder.append("<textarea name=\"" + formField.getVariable() + "\" cols=\"30\" rows=\"3\">");
-            builder.append("</textarea>");
-        }
-        else if (formField.getType().equals(FormField.Type.list_single)) {
-            builder.append("<select name=\"" + formField.getVariable() + "\" >");
-            List<Option> options = formField.getOptions();
-            String cookieValue = ModelUtil.emptyStringIfNull(getCookieValueForField(formField.getVariable(), request));
-            for (Option option : options){
-                String selected = option.getValue().equals(cookieValue) ? "selected" : "";
-                builder.append("<option value=\"" + StringUtils.escapeHTMLTags(option.getValue()) + "\" "+selected+">" + option.getLabel() + "</option>");
-            }
-            builder.append("</select>");
-        }
-        else if (formField.getType().equals(FormField.Type.bool)) {
-          List<Option> options = formField.getOptions();
-            int counter = 0;
-            for (Option option : options){
-                String value = option.getLabel();
-                builder.append("<input type=\"checkbox\" value=\"" + value + "\" name=\"" + formField.getVariable() + counter + "\">");
-                builder.append("&nbsp;");
-                builder.append(StringUtils.escapeHTMLTags(value));
-                builder.append("<br/>");
-                counter++;
-            }
-        }
-        else if (formField.getType().equals(FormField.Type.list_multi)) {
-          List<Option> options = formField.getOptions();
-          for (Option option : options){
-                String value = option.getLabel();
-                builder.append("<input type=\"radio\" value=\"" + value + "\" name=\"" + formField.getVariable() + "\">");
-                builder.append("&nbsp;");
-                builder.append(StringUtils.escapeHTMLTags(value));
-                builder.append("<br/>");
-            }
-        }
-        else if (formField.getType().equals(FormField.Type.hidden)) {
-            String name = formField.getVariable();
-            List<String> values = formField.getValues();
-            String value = "";
-            for (String item : values) {
-                value = " value=\"" + StringUtils.escapeHTMLTags(item) + "\"";
-            }
-            builder.append("<input type=\"hidden\" name=\"" + name + "\" " + value + " />");
-        }
-        else if (formField.getType().equals(FormField.Type.text_private)) {
-            String cookieValue = getCookieValueForField(formField.getVariable(), request);
-            String insertValue = "";
-            if(ModelUtil.hasLength(cookieValue)){
-                insertValue = "value=\""+StringUtils.escapeHTMLTags(cookieValue)+"\"";
-            }
-            builder.append("<input type=\"password\" name=\"" + formField.getVariable() + "\" "+insertValue+" style=\"width:75%\">");
-        }
+    /**
+     * Returns the HTML of a field of the form of a workgroup. The static parts of the field are
+     * rendered once per version of the form, only the values taken from cookies are filled in
+     * for each request.
+     *
+     * @param workgroupJid the workgroup that the form belongs to.
+     * @param formField    the form field.
+     * @param request      the http request object.
+     * @return the HTML of the field.
+     */
+    public static String createAnswers(Jid workgroupJid, FormField formField, HttpServletRequest request) {
+        return FormTemplateCache.getInstance().getTemplate(workgroupJid, formField).render(request);
+    }
 
-        return builder.toString();
+    public static String createAnswers(FormField formField, HttpServletRequest request) {
+        return FormFieldTemplate.compile(formField).render(request);
     }
 
     /**
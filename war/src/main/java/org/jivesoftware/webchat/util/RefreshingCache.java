@@ -0,0 +1,328 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache that loads its values on demand, and keeps at most one load per key in flight: concurrent callers that
+ * ask for a value that is not cached yet all wait for the same load.
+ * <p>
+ * Values that have been {@link #invalidate(Object) invalidated}, or that are older than the time to live of the
+ * cache, are reloaded in the background. Until that is done, callers get the previous (stale) value right away,
+ * instead of waiting. A load that fails is not cached, and leaves no entry behind; the next caller tries again.
+ * <p>
+ * Keys can come from requests, so the cache holds at most {@link #MAX_SIZE} keys. When a new key is added beyond
+ * that, the key of which the value was loaded longest ago is removed.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ */
+public final class RefreshingCache<K, V> {
+
+    /**
+     * Loads the value of a key.
+     *
+     * @param <K> the type of the keys.
+     * @param <V> the type of the values.
+     */
+    public interface Loader<K, V> {
+
+        /**
+         * Loads the value of a key.
+         *
+         * @param key the key.
+         * @return the value (not null).
+         * @throws Exception if the value could not be loaded.
+         */
+        V load(K key) throws Exception;
+    }
+
+    /**
+     * The maximum number of keys in a cache.
+     */
+    public static final int MAX_SIZE = 1000;
+
+    private final String name;
+    private final Loader<K, V> loader;
+    private final long timeToLive;
+    private final ConcurrentMap<K, Entry> entries = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refresher;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param name       the name of the cache, which is used to name its background thread.
+     * @param loader     loads the values.
+     * @param timeToLive the number of milliseconds after which a value is refreshed, or 0 to keep values until
+     *                   they are invalidated.
+     */
+    public RefreshingCache(final String name, Loader<K, V> loader, long timeToLive) {
+        this.name = name;
+        this.loader = loader;
+        this.timeToLive = timeToLive;
+        this.refresher = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, name + " refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.refresher.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the value of a key. If there is no value yet, it is loaded (or, if another caller is already loading
+     * it, waited for). If the value is stale, it is returned, and reloaded in the background.
+     *
+     * @param key the key.
+     * @return the value.
+     * @throws Exception if the value could not be loaded.
+     */
+    public V get(K key) throws Exception {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final Entry newEntry = new Entry(key);
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+                if (entries.size() > MAX_SIZE) {
+                    evictOldest();
+                }
+            }
+        }
+
+        final Value<V> current = entry.value;
+        if (current != null) {
+            hitCount.increment();
+            if (entry.isStale(current)) {
+                entry.refresh();
+            }
+            return current.value;
+        }
+        missCount.increment();
+        return entry.load();
+    }
+
+    /**
+     * Removes the key of which the value was loaded longest ago. Keys that are still being loaded for the first time
+     * are left alone.
+     */
+    private void evictOldest() {
+        Entry oldest = null;
+        for (Entry entry : entries.values()) {
+            final Value<V> current = entry.value;
+            if (current != null && (oldest == null || current.loaded < oldest.value.loaded)) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    /**
+     * Returns the value of a key, if it is cached (stale or not). The value is never loaded.
+     *
+     * @param key the key.
+     * @return the value, or null if there is none.
+     */
+    public V getIfPresent(K key) {
+        final Entry entry = entries.get(key);
+        final Value<V> current = entry != null ? entry.value : null;
+        return current != null ? current.value : null;
+    }
+
+    /**
+     * Marks the value of a key as stale. The value keeps being returned until it has been reloaded.
+     *
+     * @param key the key.
+     */
+    public void invalidate(K key) {
+        final Entry entry = entries.get(key);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.generation++;
+            }
+        }
+    }
+
+    /**
+     * Removes the value of a key. The next caller will wait for it to be loaded again.
+     *
+     * @param key the key.
+     */
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of keys in the cache.
+     *
+     * @return the number of keys in the cache.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of times that {@link #get(Object)} returned a cached value (stale or not).
+     *
+     * @return the number of hits.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of times that {@link #get(Object)} had to wait for a value to be loaded.
+     *
+     * @return the number of misses.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * A loaded value, along with what is needed to tell whether it is stale.
+     */
+    private static final class Value<V> {
+        private final V value;
+        private final int generation;
+        private final long loaded;
+
+        private Value(V value, int generation) {
+            this.value = value;
+            this.generation = generation;
+            this.loaded = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The value of a key, and the load of it that is in flight (if any).
+     */
+    private final class Entry {
+        private final K key;
+        private volatile Value<V> value;
+
+        /**
+         * Incremented whenever the value is invalidated. A value that was loaded in an earlier generation is stale.
+         */
+        private volatile int generation;
+
+        private FutureTask<V> task;
+
+        private Entry(K key) {
+            this.key = key;
+        }
+
+        private boolean isStale(Value<V> current) {
+            return current.generation != generation
+                || (timeToLive > 0 && System.currentTimeMillis() - current.loaded > timeToLive);
+        }
+
+        /**
+         * Loads the value in the calling thread, or waits for the load that is in flight.
+         */
+        private V load() throws Exception {
+            final FutureTask<V> loading;
+            final boolean started;
+            synchronized (this) {
+                if (task == null && value != null) {
+                    // Loaded in the meantime.
+                    return value.value;
+                }
+                started = task == null;
+                if (started) {
+                    task = newTask();
+                }
+                loading = task;
+            }
+            if (started) {
+                loading.run();
+            }
+
+            try {
+                return loading.get();
+            }
+            catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        /**
+         * Reloads the value in the background, unless a load is already in flight.
+         */
+        private void refresh() {
+            final FutureTask<V> loading;
+            synchronized (this) {
+                if (task != null) {
+                    return;
+                }
+                task = loading = newTask();
+            }
+            try {
+                refresher.execute(loading);
+            }
+            catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    task = null;
+                }
+            }
+        }
+
+        private FutureTask<V> newTask() {
+            return new FutureTask<>(new Callable<V>() {
+                public V call() throws Exception {
+                    final int loadedGeneration = generation;
+                    try {
+                        final V loaded = loader.load(key);
+                        value = new Value<>(loaded, loadedGeneration);
+                        return loaded;
+                    }
+                    catch (Exception e) {
+                        if (value != null) {
+                            // The stale value is kept, and the next caller tries again.
+                            WebLog.logError("Unable to refresh " + key + " in " + name, e);
+                        }
+                        else {
+                            // Nothing to keep for this key (which may well not exist).
+                            entries.remove(key, Entry.this);
+                        }
+                        throw e;
+                    }
+                    finally {
+                        synchronized (Entry.this) {
+                            task = null;
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
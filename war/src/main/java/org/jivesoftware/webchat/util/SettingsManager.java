@@ -15,38 +15,61 @@ package org.jivesoftware.webchat.util;
 import org.jivesoftware.webchat.ChatManager;
 import org.jivesoftware.webchat.actions.WorkgroupChangeListener;
 import org.jivesoftware.webchat.actions.WorkgroupStatus;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
 
-import org.jivesoftware.smack.SmackException;
-import org.jivesoftware.smack.XMPPConnection;
-import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.provider.ProviderManager;
 import org.jivesoftware.smackx.workgroup.settings.ChatSetting;
 import org.jivesoftware.smackx.workgroup.settings.ChatSettings;
-import org.jivesoftware.smackx.workgroup.user.Workgroup;
 import org.jxmpp.jid.Jid;
 
 import java.io.IOException;
 import java.net.URL;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
  * Responsible for retrieving and writing out images belong to a workgroup.
  */
 public class SettingsManager implements WorkgroupChangeListener {
-    private static final String CONTENT_TYPE = "image/jpeg";
-    private ChatManager chatManager = ChatManager.getInstance();
+    /**
+     * Caching of images that only change when the workgroup is reconfigured. Clients use them
+     * for a day, and revalidate them afterwards.
+     */
+    public static final String CACHE_STATIC = "public, max-age=86400";
 
     /**
-     * Stores the ChatSettings of each workgroup, and will be updated
-     * when packet date of workgroup changes.
+     * Caching of images that reflect the availability of a workgroup or agent. Clients always
+     * revalidate them, which is cheap as the image is only sent if it differs.
      */
-    private Map<Jid , ChatSettings> chatSettings = new HashMap<>();
+    public static final String CACHE_STATUS = "no-cache";
+
+    /**
+     * Stores the ChatSettings of each workgroup, and will be refreshed
+     * when packet date of workgroup changes. Only one request per workgroup
+     * is sent at a time; the previous settings are used until it is answered.
+     */
+    private final RefreshingCache<Jid, ChatSettings> chatSettings = new RefreshingCache<>("Chat settings",
+        new RefreshingCache.Loader<Jid, ChatSettings>() {
+            public ChatSettings load(Jid workgroupJid) throws Exception {
+                if (!ChatManager.getInstance().isConnected()) {
+                    throw new IllegalStateException("Not connected to the server.");
+                }
+                return WorkgroupStatus.getWorkgroup(workgroupJid).getChatSettings();
+            }
+        }, 0);
+
+    /**
+     * Stores the decoded images of each workgroup, for the settings they were decoded from.
+     */
+    private final ConcurrentMap<Jid, WorkgroupImages> images = new ConcurrentHashMap<>();
+
+    private volatile CachedImage blankImage;
 
 
     private static SettingsManager singleton;
@@ -73,6 +96,7 @@ public class SettingsManager implements WorkgroupChangeListener {
     }
 
     private SettingsManager() {
+        ProviderManager.addIQProvider(ChatSettings.ELEMENT_NAME, ChatSettings.NAMESPACE, new ChatSettings.InternalProvider());
         WorkgroupStatus.addWorkgroupChangeListener(this);
     }
 
@@ -86,7 +110,7 @@ public class SettingsManager implements WorkgroupChangeListener {
             return;
         }
 
-        response.setContentType(CONTENT_TYPE);
+        response.setContentType(CachedImage.sniffContentType(bytes));
 
         // Send back image
         try {
@@ -100,22 +124,46 @@ public class SettingsManager implements WorkgroupChangeListener {
         }
     }
 
+    /**
+     * Writes out an image, unless the client indicates (using If-None-Match) that it already
+     * has it, in which case a 304 (Not Modified) response is sent.
+     *
+     * @param image        the image to write.
+     * @param cacheControl the value of the Cache-Control header, such as {@link #CACHE_STATIC}.
+     * @param request      the request for the image.
+     * @param response     the response to write the image to.
+     */
+    public void writeImage(CachedImage image, String cacheControl, HttpServletRequest request, HttpServletResponse response) {
+        if (CACHE_STATUS.equals(cacheControl)) {
+            WebChatMetrics.STATUS_IMAGE_REQUESTS.increment();
+        }
+        response.setHeader("ETag", image.getETag());
+        response.setHeader("Cache-Control", cacheControl);
+        if (image.matches(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(image.getContentType());
+        response.setContentLength(image.getBytes().length);
+        try {
+            ServletOutputStream sos = response.getOutputStream();
+            sos.write(image.getBytes());
+            sos.flush();
+        }
+        catch (IOException e) {
+            WebLog.logError("Failed writing out image on " + new Date(), e);
+        }
+    }
+
     public ChatSetting getChatSetting(String key, Jid workgroupJid) {
         ChatSettings settings = null;
-        if (chatSettings.containsKey(workgroupJid)) {
-            settings = (ChatSettings)chatSettings.get(workgroupJid);
+        try {
+            settings = chatSettings.get(workgroupJid.asBareJid());
         }
-        else {
-            XMPPConnection connection = chatManager.getGlobalConnection();
-            Workgroup workgroup = new Workgroup(workgroupJid, connection);
-            try {
-                settings = workgroup.getChatSettings();
-                chatSettings.put(workgroupJid, settings);
-            }
-            catch (XMPPException | SmackException | InterruptedException e) {
-              // TODO better is throwing this exception
-                WebLog.logError("Error retrieving chat setting using key=" + key + " and workgroup=" + workgroupJid, e);
-            }
+        catch (Exception e) {
+          // TODO better is throwing this exception
+            WebLog.logError("Error retrieving chat setting using key=" + key + " and workgroup=" + workgroupJid, e);
         }
         if (settings != null) {
             return settings.getChatSetting(key);
@@ -132,43 +180,59 @@ public class SettingsManager implements WorkgroupChangeListener {
      * @return the BufferedImage
      */
     public byte[] getImage(String imageName, Jid workgroupJid, ServletContext context) {
+        return getCachedImage(imageName, workgroupJid, context).getBytes();
+    }
+
+    /**
+     * Returns an image of a workgroup. Images are decoded once per version of the settings of
+     * the workgroup. If the workgroup has no such image, a blank image is returned.
+     *
+     * @param imageName     the name of the image to retrieve.
+     * @param workgroupJid the name of the workgroup.
+     * @return the image.
+     */
+    public CachedImage getCachedImage(String imageName, Jid workgroupJid, ServletContext context) {
         if (workgroupJid == null) {
             WebLog.logError("Workgroup must be specified to retrieve image " + imageName);
             return getBlankImage(context);
         }
-        // Handle already populated images.
-        if (chatSettings.containsKey(workgroupJid)) {
-            byte[] bytes = getImageFromMap(imageName, workgroupJid);
-            if (bytes == null) {
-                return getBlankImage(context);
-            }
-            return bytes;
-        }
 
-        // Otherwise, retrieve images from private data, store and send.
-        XMPPConnection connection = chatManager.getGlobalConnection();
-        ProviderManager.addIQProvider(ChatSettings.ELEMENT_NAME, ChatSettings.NAMESPACE, new ChatSettings.InternalProvider());
-        
+        final Jid key = workgroupJid.asBareJid();
+        final ChatSettings settings;
         try {
-            Workgroup workgroup = new Workgroup(workgroupJid, connection);
-            ChatSettings chatSettings = workgroup.getChatSettings();
-            WebLog.log("ChatSettings: "+chatSettings.toXML().toString());
-            this.chatSettings.put(workgroupJid, chatSettings);
-            byte[] imageBytes = getImageFromMap(imageName, workgroupJid);
-            if (imageBytes == null) {
-                return getBlankImage(context);
-            }
-            return imageBytes;
-
+            // Retrieves the images from private data, unless they are known already.
+            settings = chatSettings.get(key);
         }
         catch (Exception e) {
             WebLog.logError("Could not retrieve image: " + imageName, e);
             return getBlankImage(context);
         }
+
+        WorkgroupImages current = images.get(key);
+        if (current == null || current.settings != settings) {
+            current = new WorkgroupImages(settings);
+            images.put(key, current);
+        }
+
+        CachedImage image = current.images.get(imageName);
+        if (image != null) {
+            return image;
+        }
+
+        byte[] imageBytes = getImageFromSettings(imageName, settings);
+        image = imageBytes != null ? new CachedImage(imageBytes) : getBlankImage(context);
+        final CachedImage existing = current.images.putIfAbsent(imageName, image);
+        return existing != null ? existing : image;
     }
 
     public byte[] getImageFromMap(String imageName, Jid workgroupJid) {
-        ChatSettings chatSettings = (ChatSettings)this.chatSettings.get(workgroupJid);
+        return getImageFromSettings(imageName, chatSettings.getIfPresent(workgroupJid.asBareJid()));
+    }
+
+    private static byte[] getImageFromSettings(String imageName, ChatSettings chatSettings) {
+        if (chatSettings == null) {
+            return null;
+        }
         ChatSetting imageSetting = chatSettings.getChatSetting(imageName);
         if (imageSetting == null || imageSetting.getValue() == null) {
             return null;
@@ -184,17 +248,57 @@ public class SettingsManager implements WorkgroupChangeListener {
      *
      * @return a 1x1 blank BufferedImage
      */
-    private byte[] getBlankImage(ServletContext context) {
-        String blankImage = context.getRealPath("/images/blank.gif");
-        final URL imageURL = URLFileSystem.newFileURL(blankImage);
-        byte[] bytes = new byte[0];
-        try {
-            bytes = URLFileSystem.getBytes(imageURL);
-        }
-        catch (IOException e) {
-            WebLog.logError("Error getting blank image bytes.", e);
+    private CachedImage getBlankImage(ServletContext context) {
+        CachedImage image = blankImage;
+        if (image == null) {
+            String blankImage = context.getRealPath("/images/blank.gif");
+            final URL imageURL = URLFileSystem.newFileURL(blankImage);
+            try {
+                image = new CachedImage(URLFileSystem.getBytes(imageURL));
+                this.blankImage = image;
+            }
+            catch (IOException e) {
+                WebLog.logError("Error getting blank image bytes.", e);
+                image = new CachedImage(new byte[0]);
+            }
         }
-        return bytes;
+        return image;
+    }
+
+    /**
+     * Returns the number of workgroups of which the chat settings are cached.
+     *
+     * @return the number of cached chat settings.
+     */
+    public int getChatSettingsCount() {
+        return chatSettings.size();
+    }
+
+    /**
+     * Returns the number of times that cached chat settings were used.
+     *
+     * @return the number of cache hits.
+     */
+    public long getChatSettingsHitCount() {
+        return chatSettings.getHitCount();
+    }
+
+    /**
+     * Returns the number of times that chat settings had to be retrieved before they could be used.
+     *
+     * @return the number of cache misses.
+     */
+    public long getChatSettingsMissCount() {
+        return chatSettings.getMissCount();
+    }
+
+    /**
+     * Returns the number of workgroups of which decoded images are cached.
+     *
+     * @return the number of workgroups with cached images.
+     */
+    public int getImageCacheSize() {
+        return images.size();
     }
 
     /**
@@ -203,6 +307,19 @@ public class SettingsManager implements WorkgroupChangeListener {
      * @param workgroupJid the name of the workgroup updated.
      */
     public void workgroupUpdated(Jid workgroupJid) {
-        chatSettings.remove(workgroupJid);
+        // The images are decoded again once the new settings have been retrieved.
+        chatSettings.invalidate(workgroupJid.asBareJid());
+    }
+
+    /**
+     * The decoded images of one version of the settings of a workgroup.
+     */
+    private static final class WorkgroupImages {
+        private final ChatSettings settings;
+        private final ConcurrentMap<String, CachedImage> images = new ConcurrentHashMap<>();
+
+        private WorkgroupImages(ChatSettings settings) {
+            this.settings = settings;
+        }
     }
 }
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+
+/**
+ * A static file of the web application (a script or a style sheet), along with its precompressed variants. The
+ * content of every variant is memory-mapped when the web application is deployed as a directory, so that it can be
+ * written to any number of responses without being copied onto the heap.
+ * <p>
+ * The variants are files next to the asset itself: <tt>common.js.gz</tt> is the gzip encoded variant of
+ * <tt>common.js</tt>, and <tt>common.js.br</tt> the brotli encoded one. Instances are immutable, and are cached
+ * by {@link StaticAssets}.
+ */
+public final class StaticAsset {
+
+    public static final String IDENTITY = "identity";
+    public static final String GZIP = "gzip";
+    public static final String BROTLI = "br";
+
+    /**
+     * The number of hex digits of the content hash that are used to version the URL of an asset.
+     */
+    private static final int HASH_LENGTH = 12;
+
+    private final String path;
+    private final String hash;
+    private final String contentType;
+    private final Map<String, ByteBuffer> variants;
+
+    private StaticAsset(String path, String hash, String contentType, Map<String, ByteBuffer> variants) {
+        this.path = path;
+        this.hash = hash;
+        this.contentType = contentType;
+        this.variants = variants;
+    }
+
+    /**
+     * Loads an asset and all of its variants.
+     *
+     * @param context the servlet context.
+     * @param path    the path of the asset within the web application, starting with a slash.
+     * @param hash    the content hash of the asset, as recorded when the web application was built, or null to
+     *                compute it.
+     * @return the asset, or null if there is no such file.
+     * @throws IOException if the asset could not be read.
+     */
+    static StaticAsset load(ServletContext context, String path, String hash) throws IOException {
+        final ByteBuffer identity = read(context, path);
+        if (identity == null) {
+            return null;
+        }
+
+        final Map<String, ByteBuffer> variants = new LinkedHashMap<>();
+        final ByteBuffer brotli = read(context, path + ".br");
+        if (brotli != null) {
+            variants.put(BROTLI, brotli);
+        }
+        final ByteBuffer gzip = read(context, path + ".gz");
+        if (gzip != null) {
+            variants.put(GZIP, gzip);
+        }
+        variants.put(IDENTITY, identity);
+
+        String contentType = context.getMimeType(path);
+        if (contentType == null) {
+            contentType = path.endsWith(".css") ? "text/css" : "application/javascript";
+        }
+
+        return new StaticAsset(path, hash != null ? hash : hash(identity), contentType, variants);
+    }
+
+    /**
+     * Returns the path of the asset within the web application.
+     *
+     * @return the path of the asset.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the content hash of the asset, which is used to version its URL.
+     *
+     * @return the content hash of the asset.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the content type of the asset.
+     *
+     * @return the content type of the asset.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the (quoted) entity tag of a variant of the asset. Every variant has its own entity tag, as the
+     * variants are different representations of the asset.
+     *
+     * @param encoding the content coding of the variant.
+     * @return the entity tag of the variant.
+     */
+    public String getETag(String encoding) {
+        return IDENTITY.equals(encoding) ? "\"" + hash + "\"" : "\"" + hash + "-" + encoding + "\"";
+    }
+
+    /**
+     * Returns the content of a variant of the asset. The returned buffer is a view on the shared content, and can
+     * be consumed by the caller.
+     *
+     * @param encoding the content coding of the variant.
+     * @return the content of the variant, or null if there is no such variant.
+     */
+    public ByteBuffer getContent(String encoding) {
+        final ByteBuffer content = variants.get(encoding);
+        return content != null ? content.duplicate() : null;
+    }
+
+    /**
+     * Selects the variant of the asset that is best for a client: the smallest one that the client accepts.
+     *
+     * @param acceptEncoding the value of the Accept-Encoding header of the request (can be null).
+     * @return the content coding of the selected variant.
+     */
+    public String selectEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return IDENTITY;
+        }
+        for (String encoding : variants.keySet()) {
+            if (IDENTITY.equals(encoding) || isAccepted(encoding, acceptEncoding)) {
+                return encoding;
+            }
+        }
+        return IDENTITY;
+    }
+
+    /**
+     * Returns true if a content coding is listed as acceptable (with a non-zero quality value) in the value of an
+     * Accept-Encoding header.
+     */
+    private static boolean isAccepted(String encoding, String acceptEncoding) {
+        boolean accepted = false;
+        for (String element : acceptEncoding.split(",")) {
+            final String[] parts = element.split(";");
+            final String name = parts[0].trim();
+            final boolean matches = name.equalsIgnoreCase(encoding);
+            if (!matches && !"*".equals(name)) {
+                continue;
+            }
+            boolean acceptable = true;
+            for (int i = 1; i < parts.length; i++) {
+                final String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        acceptable = Double.parseDouble(parameter.substring(2)) > 0;
+                    }
+                    catch (NumberFormatException e) {
+                        acceptable = false;
+                    }
+                }
+            }
+            if (matches) {
+                // An explicit entry takes precedence over the wildcard.
+                return acceptable;
+            }
+            accepted = acceptable;
+        }
+        return accepted;
+    }
+
+    /**
+     * Computes the content hash of an asset.
+     *
+     * @param content the content of the asset. Its position is not changed.
+     * @return the content hash.
+     */
+    public static String hash(ByteBuffer content) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(content.duplicate());
+            return StringUtils.encodeHex(digest.digest()).substring(0, HASH_LENGTH);
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads a file of the web application. The file is memory-mapped if the web application is deployed as a
+     * directory, and read into a (direct) buffer otherwise.
+     *
+     * @return the content of the file, or null if there is no such file.
+     */
+    private static ByteBuffer read(ServletContext context, String path) throws IOException {
+        final String realPath = context.getRealPath(path);
+        if (realPath != null) {
+            final File file = new File(realPath);
+            if (!file.isFile()) {
+                return null;
+            }
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                // The mapping remains valid after the channel has been closed.
+                final FileChannel channel = randomAccessFile.getChannel();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+            }
+        }
+
+        try (InputStream in = context.getResourceAsStream(path)) {
+            if (in == null) {
+                return null;
+            }
+            final byte[] bytes = readFully(in);
+            final ByteBuffer content = ByteBuffer.allocateDirect(bytes.length);
+            content.put(bytes).flip();
+            return content.asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * Reads a stream until its end.
+     *
+     * @param in the stream.
+     * @return the bytes that were read.
+     * @throws IOException if the stream could not be read.
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
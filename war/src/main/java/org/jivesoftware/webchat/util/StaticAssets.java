@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2026 Jive Software. All rights reserved.
+ *
+ * This software is published under the terms of the GNU Public License (GPL),
+ * a copy of which is included in this distribution, or a commercial license
+ * agreement with Jive.
+ */
+
+package org.jivesoftware.webchat.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Keeps the static assets (scripts and style sheets) of the web application. Assets are loaded when they are first
+ * requested, and kept until the web application is stopped.
+ * <p>
+ * Pages should refer to assets through {@link #getURL(ServletContext, String)}, which adds the content hash of the
+ * asset to its URL. Such URLs change whenever the asset changes, which allows browsers to cache them forever.
+ */
+public final class StaticAssets {
+
+    /**
+     * The manifest that is written when the web application is built, which holds the content hash of every asset.
+     */
+    public static final String MANIFEST = "/WEB-INF/static-assets.properties";
+
+    private static final String ATTRIBUTE = StaticAssets.class.getName();
+
+    private final ServletContext context;
+    private final Properties manifest = new Properties();
+    private final ConcurrentMap<String, StaticAsset> assets = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the assets of a web application.
+     *
+     * @param context the servlet context of the web application.
+     * @return the assets of the web application.
+     */
+    public static StaticAssets getInstance(ServletContext context) {
+        synchronized (context) {
+            StaticAssets instance = (StaticAssets) context.getAttribute(ATTRIBUTE);
+            if (instance == null) {
+                instance = new StaticAssets(context);
+                context.setAttribute(ATTRIBUTE, instance);
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Returns the versioned URL of an asset, relative to the root of the web application. If the asset does not
+     * exist, the path is returned unchanged.
+     *
+     * @param context the servlet context of the web application.
+     * @param path    the path of the asset, relative to the root of the web application (for example
+     *                <tt>js/prototype.js</tt>).
+     * @return the versioned URL of the asset (for example <tt>js/prototype.js?v=0123456789ab</tt>).
+     */
+    public static String getURL(ServletContext context, String path) {
+        try {
+            final StaticAsset asset = getInstance(context).getAsset("/" + path);
+            if (asset != null) {
+                return path + "?v=" + asset.getHash();
+            }
+        }
+        catch (IOException e) {
+            WebLog.logError("Unable to load static asset " + path, e);
+        }
+        return path;
+    }
+
+    private StaticAssets(ServletContext context) {
+        this.context = context;
+        try (InputStream in = context.getResourceAsStream(MANIFEST)) {
+            if (in != null) {
+                manifest.load(in);
+            }
+        }
+        catch (IOException e) {
+            WebLog.logError("Unable to read " + MANIFEST, e);
+        }
+    }
+
+    /**
+     * Returns an asset, loading it if needed.
+     *
+     * @param path the path of the asset within the web application, starting with a slash.
+     * @return the asset, or null if there is no such file.
+     * @throws IOException if the asset could not be read.
+     */
+    public StaticAsset getAsset(String path) throws IOException {
+        StaticAsset asset = assets.get(path);
+        if (asset == null) {
+            asset = StaticAsset.load(context, path, manifest.getProperty(path));
+            if (asset == null) {
+                return null;
+            }
+            final StaticAsset existing = assets.putIfAbsent(path, asset);
+            if (existing != null) {
+                asset = existing;
+            }
+        }
+        return asset;
+    }
+}
@@ -384,6 +384,45 @@ public class StringUtils {
         return encodeHex(digest.digest());
     }
 
+    /**
+     * Creates a strong HTTP entity tag for some content: the (quoted) SHA-1
+     * digest of the content, as a String of hexadecimal numbers.
+     *
+     * @param content the content to create an entity tag for.
+     * @return the quoted entity tag.
+     */
+    public static String createETag(byte[] content) {
+        try {
+            return "\"" + encodeHex(MessageDigest.getInstance("SHA-1").digest(content)) + "\"";
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns true if an entity tag is listed in the value of an If-None-Match header.
+     *
+     * @param etag        the (quoted) entity tag of the current content.
+     * @param ifNoneMatch the value of the If-None-Match header (can be null).
+     * @return true if the client already has the current content.
+     */
+    public static boolean matchesETag(String etag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            if (etag.equals(tag.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Turns an array of bytes into a String representing each byte as an
      * unsigned hex number.
@@ -1157,6 +1196,45 @@ public class StringUtils {
         return out.toString();
     }
 
+    /**
+     * Escapes all necessary characters in the String so that it can be used
+     * as a (quoted) string in a JSON document. Angle brackets are escaped too,
+     * so that the document can safely be embedded in HTML.
+     *
+     * @param string the string to escape.
+     * @return the string with appropriate characters escaped.
+     */
+    public static final String escapeForJSON(String string) {
+        if (string == null) {
+            return null;
+        }
+        StringBuilder out = null;
+        int last = 0;
+        final int len = string.length();
+        for (int i = 0; i < len; i++) {
+            final char ch = string.charAt(i);
+            if (ch >= 32 && ch != '"' && ch != '\\' && ch != '<' && ch != '>') {
+                continue;
+            }
+            if (out == null) {
+                out = new StringBuilder(len + 16);
+            }
+            out.append(string, last, i);
+            last = i + 1;
+            if (ch == '"' || ch == '\\') {
+                out.append('\\').append(ch);
+            }
+            else {
+                out.append("\\u00").append(Character.forDigit(ch >> 4, 16)).append(Character.forDigit(ch & 0xF, 16));
+            }
+        }
+        if (out == null) {
+            return string;
+        }
+        out.append(string, last, len);
+        return out.toString();
+    }
+
     /**
      * Unescapes the String by converting XML escape sequences back into normal
      * characters.
@@ -3,15 +3,31 @@ package org.jivesoftware.webchat.util;
 import org.jivesoftware.webchat.FastpathServlet;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
 public class WebLog {
+
+    /**
+     * The maximum number of messages that wait to be written. When this many are waiting, debug and info messages
+     * are dropped, and warnings wait until they can be queued.
+     */
+    private static final int QUEUE_SIZE = 10000;
+
+    /**
+     * The size of the log file (in characters) above which it is rotated. It is also rotated at midnight.
+     */
+    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+
+    /**
+     * The number of rotated log files that are kept.
+     */
+    private static final int MAX_FILES = 5;
+
     static File errorFile;
     private static Logger LOGGER;
+    private static AsyncLogHandler handler;
 
     static {
         // Create an appending file handler
@@ -32,24 +48,52 @@ public class WebLog {
         }
 
 
-        try {
-            // Create an appending file handler
-            boolean append = true;
-            FileHandler handler = new FileHandler(errorFile.getCanonicalPath(), append);
-            handler.setFormatter(new SimpleFormatter());
-
-            // Add to the desired logger
-            LOGGER = Logger.getAnonymousLogger();
-            LOGGER.addHandler(handler);
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        LOGGER = Logger.getAnonymousLogger();
+
+        // Write on a thread of its own, so that a slow disk does not hold up the threads that log.
+        handler = new AsyncLogHandler(errorFile, QUEUE_SIZE, MAX_FILE_SIZE, MAX_FILES);
+        handler.setFormatter(new SimpleFormatter());
+
+        // Add to the desired logger
+        LOGGER.addHandler(handler);
     }
 
 
+    /**
+     * Changes the file to log to. Messages that have not been written yet are written to the new file.
+     *
+     * @param file the file to log to.
+     */
     public final static void changeLogFile(File file) {
         errorFile = file;
+        handler.setFile(file);
+    }
+
+    /**
+     * Returns the number of debug and info messages that were dropped, because messages were logged faster than they
+     * could be written.
+     *
+     * @return the number of dropped messages.
+     */
+    public final static long getDroppedCount() {
+        return handler.getDroppedCount();
+    }
+
+    /**
+     * Returns the number of messages that wait to be written.
+     *
+     * @return the number of waiting messages.
+     */
+    public final static int getQueueSize() {
+        return handler.getQueueSize();
+    }
+
+    /**
+     * Writes the messages that wait to be written, and closes the log file. This is invoked when the web application
+     * is shut down; messages that are logged afterwards are written directly.
+     */
+    public final static void close() {
+        handler.close();
     }
 
     /**
@@ -84,4 +128,18 @@ public class WebLog {
     public final static void log(String message) {
         LOGGER.log(Level.INFO, message);
     }
+
+    /**
+     * Returns true if debug messages are logged. Use this to avoid building messages that
+     * would be discarded.
+     *
+     * @return true if debug messages are logged.
+     */
+    public final static boolean isDebugEnabled() {
+        return LOGGER.isLoggable(Level.FINE);
+    }
+
+    public final static void debug(String message) {
+        LOGGER.log(Level.FINE, message);
+    }
 }
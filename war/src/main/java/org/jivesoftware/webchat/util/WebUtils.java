@@ -15,6 +15,7 @@ package org.jivesoftware.webchat.util;
 import org.jivesoftware.webchat.filter.EmoticonFilter;
 import org.jivesoftware.webchat.filter.TextStyleFilter;
 import org.jivesoftware.webchat.filter.URLFilter;
+import org.jivesoftware.webchat.metrics.WebChatMetrics;
 
 import org.jivesoftware.smack.packet.Presence;
 
@@ -86,6 +87,16 @@ public final class WebUtils {
      * @return the given string with all filters applied.
      */
     public static String applyFilters(String body) {
+        final long start = System.nanoTime();
+        try {
+            return filter(body);
+        }
+        finally {
+            WebChatMetrics.FILTER_DURATION.observe(System.nanoTime() - start);
+        }
+    }
+
+    private static String filter(String body) {
         // Encode the HTML special characters
         body = replace(body, "&", "&amp;");
         body = replace(body, "<", "&lt;");
@@ -194,7 +194,7 @@
       <title>Live Assistant Personal Contact</title>
 
       <link rel="stylesheet" type="text/css" href="style.jsp">
-      <script language="JavaScript" type="text/javascript" src="common.js">//Ignore</script>
+      <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>">//Ignore</script>
   </head>
   <%
         String title = "Chat Live with "+agentName;
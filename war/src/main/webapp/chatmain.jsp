@@ -15,7 +15,7 @@
                    java.util.Map,
                    org.jivesoftware.webchat.util.FormText" %><%@ page import="org.jivesoftware.smackx.workgroup.settings.SoundSettings"%><%@ page import="org.jivesoftware.smack.XMPPException"%><%@ page import="org.jivesoftware.webchat.util.WebUtils"%>
 <%@ page import="org.jivesoftware.webchat.util.StringUtils" %>
-<script type='text/javascript' src='common.js'></script>
+<script type='text/javascript' src='<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>'></script>
 <script type='text/javascript' src='<%= request.getContextPath()%>/dwr/engine.js'></script>
 <script type='text/javascript' src='<%= request.getContextPath()%>/dwr/interface/room.js'></script>
 
@@ -91,7 +91,7 @@
             var val = chatbox.value;
 
             // submit the form to the servlet
-            room.sendMessage('<%= StringUtils.escapeHTMLTags(chatID) %>', val, null);
+            room.sendMessage('<%= StringUtils.escapeHTMLTags(chatID) %>', val, showSendError);
 
             // apply filters
             val = applyFilters(val);
@@ -118,6 +118,13 @@
         chatbox.value = "";
     }
 
+    function showSendError(error) {
+        if (error != null) {
+            addText('', error);
+            scrollYakToEnd(window.frames['yak']);
+        }
+    }
+
     function showCobrowser(url){
       var width = 800;
       var height = 700;
@@ -90,7 +90,7 @@
         <script language="JavaScript" type="text/javascript">
             var nickname = '<%= userNickname %>';
         </script>
-        <script language="JavaScript" type="text/javascript" src="common.js"></script>
+        <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
         <script language="JavaScript" type="text/javascript">
         var counter = 0;
       var cobrowseWin;
@@ -17,7 +17,7 @@
                  org.jivesoftware.smack.packet.Presence" errorPage="fatal.jsp" %>
 <html>
 <head>
- <script language="JavaScript" type="text/javascript" src="common.js"></script>
+ <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
 </head>
 <body>
 
@@ -58,7 +58,7 @@
     <head>
         <link rel="stylesheet" type="text/css" href="../style.jsp?workgroup=<%= workgroup %>"/>
 
-        <script language="JavaScript" type="text/javascript" src="../common.js"></script>
+        <script language="JavaScript" type="text/javascript" src="../<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
 
         <title>Leave A Message</title>
 <%
@@ -9,7 +9,7 @@
         <title>Offline</title>
         <link rel="stylesheet"
                      type="text/css"
-                     href="../style.jsp?workgroup=<%= workgroup %>"/><script language="JavaScript" type="text/javascript" src="common.js">//Ignore</script>
+                     href="../style.jsp?workgroup=<%= workgroup %>"/><script language="JavaScript" type="text/javascript" src="../<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>">//Ignore</script>
 
   </head>
    <body style="margin-top:0px; margin-bottom:20px; margin-right:20px;margin-left:20px" id="defaultwindow">
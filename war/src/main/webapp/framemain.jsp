@@ -19,7 +19,7 @@
 
       <link rel="stylesheet" type="text/css" href="style.jsp"/>
 
-      <script language="JavaScript" type="text/javascript" href="common.js"></script>
+      <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
 
       <script language="JavaScript" type="text/javascript">
 
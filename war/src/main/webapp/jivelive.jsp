@@ -64,3 +64,35 @@
 
 
 
+
+  // Retrieves the availability of several workgroups (and agents) with a single request. The callback
+  // receives an object like {workgroups: {"sales@workgroup.example.org": true}, agents: {}}.
+  function checkAvailability(workgroups, agents, callback) {
+    var url = "<%=urls %>/availability?workgroup=" + encodeURIComponent(workgroups.join(","));
+    if (agents && agents.length > 0) {
+      url += "&agent=" + encodeURIComponent(agents.join(","));
+    }
+    var xhr = new XMLHttpRequest();
+    xhr.onreadystatechange = function() {
+      if (xhr.readyState == 4 && xhr.status == 200) {
+        callback(JSON.parse(xhr.responseText));
+      }
+    };
+    xhr.open("GET", url, true);
+    xhr.send(null);
+  }
+
+  // Invokes the callback whenever one of the workgroups goes online or offline, and once for the current
+  // availability of each of them. The callback receives an object like
+  // {workgroup: "sales@workgroup.example.org", available: true}. Returns the EventSource, or null if the
+  // browser does not support server-sent events.
+  function watchAvailability(workgroups, callback) {
+    if (typeof(EventSource) == "undefined") {
+      return null;
+    }
+    var source = new EventSource("<%=urls %>/events?workgroup=" + encodeURIComponent(workgroups.join(",")));
+    source.addEventListener("availability", function(e) {
+      callback(JSON.parse(e.data));
+    }, false);
+    return source;
+  }
@@ -0,0 +1,55 @@
+<%--
+  -
+  - Copyright (C) 2026 Jive Software. All rights reserved.
+  -
+  - This software is published under the terms of the GNU Public License (GPL),
+  - a copy of which is included in this distribution, or a commercial license
+  - agreement with Jive.
+--%>
+
+<%@ page import="org.jivesoftware.webchat.metrics.JourneyWindow" %>
+<%@ page import="org.jivesoftware.webchat.util.StringUtils" %>
+<%@ page import="java.util.List" %>
+<%@ page import="java.util.concurrent.TimeUnit" %>
+
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%
+    response.setHeader("Cache-Control", "no-cache");
+    final List<JourneyWindow.Summary> summaries = JourneyWindow.getInstance().getSummaries();
+%>
+<html>
+<head><title>Chat Journey Statistics</title></head>
+
+<body>
+<table width="800">
+    <tr><td colspan="6"><h4>Chat Journey Statistics</h4></td></tr>
+    <tr><td colspan="6">
+        Time from the start of a chat until it reached each milestone, for the chats of the last
+        <%= TimeUnit.MILLISECONDS.toMinutes(JourneyWindow.WINDOW) %> minutes. Times are in seconds.
+    </td></tr>
+    <tr>
+        <td><b>Workgroup</b></td>
+        <td><b>Milestone</b></td>
+        <td align="right"><b>Chats</b></td>
+        <td align="right"><b>Median</b></td>
+        <td align="right"><b>90th Percentile</b></td>
+        <td align="right"><b>Maximum</b></td>
+    </tr>
+    <% if (summaries.isEmpty()) { %>
+    <tr><td colspan="6">No chats have been started in this period.</td></tr>
+    <% } %>
+    <% for (JourneyWindow.Summary summary : summaries) { %>
+    <tr>
+        <td><%= StringUtils.escapeHTMLTags(summary.getWorkgroup()) %></td>
+        <td><%= summary.getMilestone().getDisplayName() %></td>
+        <td align="right"><%= summary.getCount() %></td>
+        <td align="right"><%= String.format("%.1f", summary.getMedian() / 1000.0) %></td>
+        <td align="right"><%= String.format("%.1f", summary.getPercentile90() / 1000.0) %></td>
+        <td align="right"><%= String.format("%.1f", summary.getMaximum() / 1000.0) %></td>
+    </tr>
+    <% } %>
+</table>
+
+
+</body>
+</html>
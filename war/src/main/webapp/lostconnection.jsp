@@ -17,7 +17,7 @@
 <head>
   <title>Live Assistant - Connection Lost</title>
 
-  <script language="JavaScript" type="text/javascript" src="common.js"></script>
+  <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
 
   <link rel="stylesheet" type="text/css" href="style.jsp"/>
 </head>
@@ -65,10 +65,10 @@ import="java.util.Map,
 <html>
 <head>
 	<title>Webchat Setup</title>
-	<link rel="stylesheet" type="text/css" href="setup-style.css">
-    <script language="javascript" type="text/javascript" src="js/tooltips/domLib.js"></script>
-    <script language="javascript" type="text/javascript" src="js/tooltips/domTT.js"></script>
-    <script language="JavaScript" type="text/javascript" src="common.js"></script>
+	<link rel="stylesheet" type="text/css" href="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "setup-style.css") %>">
+    <script language="javascript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "js/tooltips/domLib.js") %>"></script>
+    <script language="javascript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "js/tooltips/domTT.js") %>"></script>
+    <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
 </head>
 
 <body>
@@ -18,7 +18,7 @@
     <head>
       <title>Transcript</title>
 
-      <script language="JavaScript" type="text/javascript" src="common.js"></script>
+      <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
 
       <link rel="stylesheet" type="text/css" href="style.jsp"/>
     </head>
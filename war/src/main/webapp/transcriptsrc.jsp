@@ -12,7 +12,6 @@
 
 <%@ page
 import   ="org.jivesoftware.webchat.history.*,
-                   java.util.*,
                    org.jivesoftware.webchat.ChatManager,
                    org.jivesoftware.webchat.ChatSession,
                    org.jivesoftware.webchat.util.ModelUtil"
@@ -26,18 +25,21 @@ errorPage="fatal.jsp"%>
     ChatSession chatSession = chatManager.getChatSession(chatID);
     if(chatSession == null){
         response.sendRedirect("chat-ended.jsp");
+        return;
     }
 
-    // Get the transcript from the session
+    // Get the transcript from the session, and stop adding lines to it. The session is closed once the transcript
+    // has been written (or writing it failed), as that releases the lines that were moved to disk.
+    chatSession.endTranscript();
     Transcript transcript = chatSession.getTranscript();
-    chatManager.closeChatSession(chatID);
+    try {
 %>
 
     <html>
     <head>
         <title>Chat Transcripts</title>
 
-        <script language="JavaScript" type="text/javascript" src="common.js"></script>
+        <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
 
         <link rel="stylesheet" type="text/css" href="style.jsp"/>
     </head>
@@ -59,44 +61,13 @@ errorPage="fatal.jsp"%>
                         }
 
 
-                        List<Line> transcriptLines = transcript.getTranscript();
+                        // Lines are written as they are read, rather than all at once.
+                        String cp = request.getContextPath();
+                        String full = request.getRequestURL().toString();
+                        int  index = full.indexOf(cp);
+                        String base = full.substring(0, (index + cp.length()));
 
-                        for (int i = 0; i < transcriptLines.size(); i++) {
-                            Line line = transcriptLines.get(i);
-
-                            String from = line.getFrom().toString();
-                            String text = line.getText();
-                            String cp = request.getContextPath();
-                            String full = request.getRequestURL().toString();
-                            int  index = full.indexOf(cp);
-                            String base = full.substring(0, (index + cp.length()));
-
-                            text = text.replaceAll("src=\"", "src=\"" + base + "/");
-                            boolean isAnnouncement = !ModelUtil.hasLength(from);
-%>
-
-                            <div class="chat-line">
-<%
-                                if (isAnnouncement) {
-%>
-
-                                    <span class="chat-announcement"> <%= text %> </span>
-
-<%
-                                }
-                                else{
-%>
-
-                                    <span class="<%= "client-name" %>"> <%= from %>: </span>
-                                    <span class="text"> <%= text %> </span>
-
-<%
-                                }
-%>
-                            </div>
-
-<%
-                        }
+                        new TranscriptRenderer(base).writeHTML(transcript, out);
 %>
 
 <%
@@ -107,3 +78,9 @@ errorPage="fatal.jsp"%>
         </div>
     </body>
     </html>
+<%
+    }
+    finally {
+        chatManager.closeChatSession(chatID);
+    }
+%>
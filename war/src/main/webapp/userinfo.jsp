@@ -239,7 +239,7 @@
 
         <link rel="stylesheet"
               type="text/css"
-              href="style.jsp?workgroup=<%= workgroup %>"/><script language="JavaScript" type="text/javascript" src="common.js">//Ignore</script>
+              href="style.jsp?workgroup=<%= workgroup %>"/><script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>">//Ignore</script>
   </head>
   <body style="margin-top:0px; margin-bottom:20px; margin-right:20px;margin-left:20px" id="defaultwindow">
     <table width="100%" cellpadding="3" cellspacing="2">
@@ -282,7 +282,7 @@
                            if(!field.getType().equals(FormField.Type.hidden)){
                    %>
                    <tr valign="top">
-                     <td class="formtext" height="1%" width="1%" nowrap><%= label%><%= requiredStr%></td><td><%= FormUtils.createAnswers(field, request)%></td>
+                     <td class="formtext" height="1%" width="1%" nowrap><%= label%><%= requiredStr%></td><td><%= FormUtils.createAnswers(workgroupJid, field, request)%></td>
                    </tr>
                    <% } } %>
 
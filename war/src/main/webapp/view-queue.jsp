@@ -25,7 +25,7 @@
     <head>
         <title>Queue Information</title>
         <link rel="stylesheet" type="text/css" href="style.jsp?workgroup=<%= workgroup %>"/>
-        <script language="JavaScript" type="text/javascript" src="common.js"></script>
+        <script language="JavaScript" type="text/javascript" src="<%= org.jivesoftware.webchat.util.StaticAssets.getURL(application, "common.js") %>"></script>
         <script type="text/javascript" language="Javascript">
         dwr.engine.setErrorHandler(handleError);
 